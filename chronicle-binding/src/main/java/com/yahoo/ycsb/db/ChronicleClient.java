@@ -89,6 +89,18 @@ public class ChronicleClient extends DB {
         return 0;
     }
 
+    @Override
+    public int insertBatch(String table, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+        Map<String, Map<String, String>> records = new LinkedHashMap<String, Map<String, String>>(keys.size() * 2);
+        for (int i = 0; i < keys.size(); i++) {
+            records.put(keys.get(i), StringByteIterator.getStringMap(values.get(i)));
+        }
+        map.putAll(records);
+        if (KEY_CHECK)
+            this.keys.addAll(keys);
+        return 0;
+    }
+
     @Override
     public int delete(String table, String key) {
         if (KEY_CHECK) keys.remove(key);
@@ -0,0 +1,237 @@
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * A layer for accessing a database through a non-blocking API. This is the asynchronous counterpart of
+ * {@link DB}: each method issues the request and returns a {@link DBFuture} straight away, so a single client
+ * thread can keep several requests in flight. The number of requests each client thread may have outstanding
+ * is set with the "async.outstanding" property.
+ * 
+ * As with DB, each client thread is given its own instance, the class must have a no-argument constructor,
+ * and argument-based initialization should be done by init(). The result containers passed to read and scan
+ * must only be filled in before the returned future is completed.
+ * 
+ * Blocking bindings do not need to change; the client runs them through {@link BlockingAsyncDB} when the
+ * "async" property is set.
+ *
+ * Operations on many records at once are issued as one request per record by default, and complete once all of
+ * those have; bindings whose database has a bulk API should override them.
+ */
+public abstract class AsyncDB
+{
+	/**
+	 * Whether to drive blocking DB bindings through the asynchronous path as well. Bindings that extend
+	 * AsyncDB always use it.
+	 */
+	public static final String ASYNC_PROPERTY="async";
+
+	public static final String ASYNC_PROPERTY_DEFAULT="false";
+
+	/**
+	 * The maximum number of requests each client thread may have in flight.
+	 */
+	public static final String OUTSTANDING_PROPERTY="async.outstanding";
+
+	public static final String OUTSTANDING_PROPERTY_DEFAULT="16";
+
+	/**
+	 * Properties for configuring this DB.
+	 */
+	Properties _p=new Properties();
+
+	/**
+	 * Completes a future once every request it is made of has completed, with the first non-zero result among
+	 * them, or zero.
+	 */
+	static class Combined implements DBFuture.Listener
+	{
+		final DBFuture _future=new DBFuture();
+
+		//one more than the requests still pending, until done() is called
+		int _pending=1;
+		int _result;
+
+		void add(DBFuture request)
+		{
+			synchronized (this)
+			{
+				_pending++;
+			}
+			request.whenComplete(this);
+		}
+
+		/**
+		 * @return the future of the combined requests, once all of them have been added
+		 */
+		DBFuture done()
+		{
+			completed(0);
+			return _future;
+		}
+
+		public void completed(int result)
+		{
+			boolean last;
+			synchronized (this)
+			{
+				if (_result==0)
+				{
+					_result=result;
+				}
+				last=--_pending==0;
+			}
+			if (last)
+			{
+				_future.complete(_result);
+			}
+		}
+	}
+
+	/**
+	 * Set the properties for this DB.
+	 */
+	public void setProperties(Properties p)
+	{
+		_p=p;
+	}
+
+	/**
+	 * Get the set of properties for this DB.
+	 */
+	public Properties getProperties()
+	{
+		return _p;
+	}
+
+	/**
+	 * Initialize any state for this DB.
+	 * Called once per DB instance; there is one DB instance per client thread.
+	 */
+	public void init() throws DBException
+	{
+	}
+
+	/**
+	 * Cleanup any state for this DB. All requests issued by this instance have completed when this is called.
+	 * Called once per DB instance; there is one DB instance per client thread.
+	 */
+	public void cleanup() throws DBException
+	{
+	}
+
+	/**
+	 * Read a record from the database. Each field/value pair from the result will be stored in a HashMap.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A HashMap of field/value pairs for the result
+	 * @return A future completed with zero on success, a non-zero error code on error or "not found".
+	 */
+	public abstract DBFuture read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result);
+
+	/**
+	 * Read a number of records from the database at once.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param results A list to add a HashMap of field/value pairs to for each record, in the order of the keys
+	 * @return A future completed with zero on success, a non-zero error code on error or if any record was "not found".
+	 */
+	public DBFuture multiRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+		Combined combined=new Combined();
+		for (String key : keys)
+		{
+			HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+			results.add(result);
+			combined.add(read(table,key,fields,result));
+		}
+		return combined.done();
+	}
+
+	/**
+	 * Perform a range scan for a set of records in the database. Each field/value pair from the result will be stored in a HashMap.
+	 *
+	 * @param table The name of the table
+	 * @param startkey The record key of the first record to read.
+	 * @param recordcount The number of records to read
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
+	 * @return A future completed with zero on success, a non-zero error code on error.
+	 */
+	public abstract DBFuture scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result);
+
+	/**
+	 * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
+	 * record key, overwriting any existing values with the same field name.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param values A HashMap of field/value pairs to update in the record
+	 * @return A future completed with zero on success, a non-zero error code on error.
+	 */
+	public abstract DBFuture update(String table, String key, HashMap<String,ByteIterator> values);
+
+	/**
+	 * Update a number of records in the database at once.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to write.
+	 * @param values For each record, a HashMap of field/value pairs to update in the record
+	 * @return A future completed with zero on success, a non-zero error code on error.
+	 */
+	public DBFuture multiUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		Combined combined=new Combined();
+		for (int i=0; i<keys.size(); i++)
+		{
+			combined.add(update(table,keys.get(i),values.get(i)));
+		}
+		return combined.done();
+	}
+
+	/**
+	 * Insert a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
+	 * record key.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to insert.
+	 * @param values A HashMap of field/value pairs to insert in the record
+	 * @return A future completed with zero on success, a non-zero error code on error.
+	 */
+	public abstract DBFuture insert(String table, String key, HashMap<String,ByteIterator> values);
+
+	/**
+	 * Insert a batch of records in the database, e.g. while loading it.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to insert, sorted if the workload inserts in key order.
+	 * @param values For each record, a HashMap of field/value pairs to insert in the record
+	 * @return A future completed with zero on success, a non-zero error code on error.
+	 */
+	public DBFuture insertBatch(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		Combined combined=new Combined();
+		for (int i=0; i<keys.size(); i++)
+		{
+			combined.add(insert(table,keys.get(i),values.get(i)));
+		}
+		return combined.done();
+	}
+
+	/**
+	 * Delete a record from the database. 
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to delete.
+	 * @return A future completed with zero on success, a non-zero error code on error.
+	 */
+	public abstract DBFuture delete(String table, String key);
+}
@@ -0,0 +1,200 @@
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.Semaphore;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Presents an {@link AsyncDB} to the workload as an ordinary DB, so workloads run unchanged on top of
+ * asynchronous bindings. Each call issues the request and returns as soon as it has been sent, blocking only
+ * when the client thread already has the maximum number of requests outstanding. Latencies and return codes
+ * are measured when the requests complete.
+ * 
+ * Since calls return before the request completes, they always return zero, and result containers are only
+ * filled in later by the binding. Operations on many records at once take a single slot of the window, and are
+ * measured as a whole like {@link DBWrapper} does.
+ */
+public class AsyncDBWrapper extends DB
+{
+	AsyncDB _db;
+	Measurements _measurements;
+	int _outstanding;
+	Semaphore _window;
+
+	public AsyncDBWrapper(AsyncDB db, int outstanding)
+	{
+		_db=db;
+		_measurements=Measurements.getMeasurements();
+		_outstanding=outstanding;
+		_window=new Semaphore(outstanding);
+	}
+
+	/**
+	 * Measures one operation when it completes, and frees its slot in the window.
+	 */
+	class Completion implements DBFuture.Listener
+	{
+		final String _op;
+		final long _intendedStartTimeNanos;
+		final long _startTimeNanos;
+
+		Completion(String op, long intendedStartTimeNanos, long startTimeNanos)
+		{
+			_op=op;
+			_intendedStartTimeNanos=intendedStartTimeNanos;
+			_startTimeNanos=startTimeNanos;
+		}
+
+		public void completed(int result)
+		{
+			long en=System.nanoTime();
+			DBWrapper.measure(_measurements,_op,result,_intendedStartTimeNanos,_startTimeNanos,en);
+			_window.release();
+		}
+	}
+
+	/**
+	 * Measures an operation on many keys when it completes, and frees its slot in the window.
+	 */
+	class MultiCompletion extends Completion
+	{
+		final int _keys;
+
+		MultiCompletion(String op, int keys, long intendedStartTimeNanos, long startTimeNanos)
+		{
+			super(op,intendedStartTimeNanos,startTimeNanos);
+			_keys=keys;
+		}
+
+		public void completed(int result)
+		{
+			long en=System.nanoTime();
+			DBWrapper.measureMulti(_measurements,_op,result,_keys,_intendedStartTimeNanos,_startTimeNanos,en);
+			_window.release();
+		}
+	}
+
+	/**
+	 * Set the properties for this DB.
+	 */
+	public void setProperties(Properties p)
+	{
+		_db.setProperties(p);
+	}
+
+	/**
+	 * Get the set of properties for this DB.
+	 */
+	public Properties getProperties()
+	{
+		return _db.getProperties();
+	}
+
+	/**
+	 * Initialize any state for this DB.
+	 * Called once per DB instance; there is one DB instance per client thread.
+	 */
+	public void init() throws DBException
+	{
+		_db.init();
+	}
+
+	/**
+	 * Wait for all outstanding requests to complete, then cleanup any state for this DB.
+	 * Called once per DB instance; there is one DB instance per client thread.
+	 */
+	public void cleanup() throws DBException
+	{
+		drain();
+		long st=System.nanoTime();
+		_db.cleanup();
+		long en=System.nanoTime();
+		_measurements.measureNanos("CLEANUP", en-st);
+	}
+
+	/**
+	 * Wait until no requests are outstanding.
+	 */
+	public void drain()
+	{
+		_window.acquireUninterruptibly(_outstanding);
+		_window.release(_outstanding);
+	}
+
+	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		_window.acquireUninterruptibly();
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		_db.read(table,key,fields,result).whenComplete(new Completion("READ",ist,st));
+		return 0;
+	}
+
+	public int multiRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+		_window.acquireUninterruptibly();
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		_db.multiRead(table,keys,fields,results).whenComplete(new MultiCompletion("MULTI-READ",keys.size(),ist,st));
+		return 0;
+	}
+
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		_window.acquireUninterruptibly();
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		_db.scan(table,startkey,recordcount,fields,result).whenComplete(new Completion("SCAN",ist,st));
+		return 0;
+	}
+
+	public int update(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		_window.acquireUninterruptibly();
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		_db.update(table,key,values).whenComplete(new Completion("UPDATE",ist,st));
+		return 0;
+	}
+
+	public int multiUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		_window.acquireUninterruptibly();
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		_db.multiUpdate(table,keys,values).whenComplete(new MultiCompletion("MULTI-UPDATE",keys.size(),ist,st));
+		return 0;
+	}
+
+	public int insert(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		_window.acquireUninterruptibly();
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		_db.insert(table,key,values).whenComplete(new Completion("INSERT",ist,st));
+		return 0;
+	}
+
+	public int insertBatch(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		_window.acquireUninterruptibly();
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		_db.insertBatch(table,keys,values).whenComplete(new Completion("INSERT-BATCH",ist,st));
+		return 0;
+	}
+
+	public int delete(String table, String key)
+	{
+		_window.acquireUninterruptibly();
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		_db.delete(table,key).whenComplete(new Completion("DELETE",ist,st));
+		return 0;
+	}
+}
@@ -79,6 +79,14 @@ public class BasicDB extends DB
 	 * @return Zero on success, a non-zero error code on error
 	 */
 	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		return read(table,(CharSequence)key,fields,result);
+	}
+
+	/**
+	 * Read a record, given its key as characters, which are only turned into a String when printed.
+	 */
+	public int read(String table, CharSequence key, Set<String> fields, HashMap<String,ByteIterator> result)
 	{
 		delay();
 
@@ -148,6 +156,14 @@ public class BasicDB extends DB
 	 * @return Zero on success, a non-zero error code on error
 	 */
 	public int update(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		return update(table,(CharSequence)key,values);
+	}
+
+	/**
+	 * Update a record, given its key as characters, which are only turned into a String when printed.
+	 */
+	public int update(String table, CharSequence key, HashMap<String,ByteIterator> values)
 	{
 		delay();
 
@@ -177,6 +193,14 @@ public class BasicDB extends DB
 	 * @return Zero on success, a non-zero error code on error
 	 */
 	public int insert(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		return insert(table,(CharSequence)key,values);
+	}
+
+	/**
+	 * Insert a record, given its key as characters, which are only turned into a String when printed.
+	 */
+	public int insert(String table, CharSequence key, HashMap<String,ByteIterator> values)
 	{
 		delay();
 
@@ -0,0 +1,82 @@
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * Adapts a blocking {@link DB} binding to the {@link AsyncDB} API. Each request runs to completion on the
+ * calling thread and the returned future is already completed, so at most one request is ever outstanding,
+ * exactly as if the binding were driven directly.
+ */
+public class BlockingAsyncDB extends AsyncDB
+{
+	DB _db;
+
+	public BlockingAsyncDB(DB db)
+	{
+		_db=db;
+	}
+
+	public void setProperties(Properties p)
+	{
+		_db.setProperties(p);
+	}
+
+	public Properties getProperties()
+	{
+		return _db.getProperties();
+	}
+
+	public void init() throws DBException
+	{
+		_db.init();
+	}
+
+	public void cleanup() throws DBException
+	{
+		_db.cleanup();
+	}
+
+	public DBFuture read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		return DBFuture.completed(_db.read(table,key,fields,result));
+	}
+
+	public DBFuture multiRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+		return DBFuture.completed(_db.multiRead(table,keys,fields,results));
+	}
+
+	public DBFuture scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		return DBFuture.completed(_db.scan(table,startkey,recordcount,fields,result));
+	}
+
+	public DBFuture update(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		return DBFuture.completed(_db.update(table,key,values));
+	}
+
+	public DBFuture multiUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		return DBFuture.completed(_db.multiUpdate(table,keys,values));
+	}
+
+	public DBFuture insert(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		return DBFuture.completed(_db.insert(table,key,values));
+	}
+
+	public DBFuture insertBatch(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		return DBFuture.completed(_db.insertBatch(table,keys,values));
+	}
+
+	public DBFuture delete(String table, String key)
+	{
+		return DBFuture.completed(_db.delete(table,key));
+	}
+}
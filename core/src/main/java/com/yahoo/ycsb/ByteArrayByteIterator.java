@@ -3,7 +3,7 @@ package com.yahoo.ycsb;
 public class ByteArrayByteIterator extends ByteIterator {
 	byte[] str;
 	int off;
-	final int len;
+	int len;
 	public ByteArrayByteIterator(byte[] s) {
 		this.str = s;
 		this.off = 0;
@@ -16,6 +16,16 @@ public class ByteArrayByteIterator extends ByteIterator {
 		this.len = off + len;
 	}
 
+	/**
+	 * Point this iterator at new bytes, so one instance can be reused for many values.
+	 */
+	public ByteArrayByteIterator reset(byte[] s, int off, int len) {
+		this.str = s;
+		this.off = off;
+		this.len = off + len;
+		return this;
+	}
+
 	@Override
 	public boolean hasNext() {
 		return off < len;
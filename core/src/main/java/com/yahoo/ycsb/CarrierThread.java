@@ -0,0 +1,100 @@
+package com.yahoo.ycsb;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A thread that runs many clients as lightweight tasks, so that far more logical clients can be modelled
+ * than there could be OS threads. Each client keeps its own DB instance and its own workload state from
+ * Workload.initThread(), exactly as if it had a thread of its own; the carrier thread interleaves their
+ * operations, always running the client whose next operation is due first.
+ * 
+ * With a target throughput each client has its own pacing schedule, and a carrier waits for whichever of
+ * its clients is due next. Without a target the clients simply take turns.
+ * 
+ * Since a client's operation runs to completion on the carrier thread, a carrier only has one blocking
+ * operation in flight at a time; combine with an asynchronous binding (see {@link AsyncDB}) to keep
+ * requests from many clients outstanding at once.
+ */
+class CarrierThread extends Thread
+{
+	List<ClientThread> _clients;
+
+	/**
+	 * @param clients the clients to run; they must not be started as threads themselves
+	 */
+	CarrierThread(List<ClientThread> clients)
+	{
+		_clients=clients;
+	}
+
+	public void run()
+	{
+		PriorityQueue<ClientThread> due=new PriorityQueue<ClientThread>(Math.max(1,_clients.size()), new Comparator<ClientThread>()
+		{
+			public int compare(ClientThread a, ClientThread b)
+			{
+				long diff=a._nextOpTimeNanos-b._nextOpTimeNanos;
+				return diff<0 ? -1 : (diff>0 ? 1 : 0);
+			}
+		});
+
+		long now=System.nanoTime();
+		for (ClientThread client : _clients)
+		{
+			if (!client.initClient())
+			{
+				client._finished=true;
+				continue;
+			}
+
+			client._nextOpTimeNanos=now;
+			if (client._pacer!=null)
+			{
+				client.startPacing(now);
+				client._nextOpTimeNanos=client._pacer.next(now);
+			}
+			due.add(client);
+		}
+
+		try
+		{
+			while (!due.isEmpty())
+			{
+				ClientThread client=due.poll();
+				Utils.setRandom(client._random);
+
+				if (!client.hasMoreOps())
+				{
+					client.cleanupClient();
+					continue;
+				}
+
+				if (client._pacer!=null)
+				{
+					client.throttle(client._nextOpTimeNanos);
+				}
+
+				if (!client.doOperation())
+				{
+					client.cleanupClient();
+					continue;
+				}
+
+				client._nextOpTimeNanos=System.nanoTime();
+				if (client._pacer!=null)
+				{
+					client._nextOpTimeNanos=client._pacer.next(client._nextOpTimeNanos);
+				}
+				due.add(client);
+			}
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			System.exit(0);
+		}
+	}
+}
@@ -1,18 +1,26 @@
 package com.yahoo.ycsb;
 
 
+import com.yahoo.ycsb.measurements.HistogramLogWriter;
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OneMeasurement;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import com.yahoo.ycsb.pacing.LoadProfile;
 
 import java.io.FileInputStream;
+import java.io.FilterOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Vector;
 
@@ -59,17 +67,17 @@ class StatusThread extends Thread
 		{
 			alldone=true;
 
-			int totalops=0;
+			long totalops=0;
 
 			//terminate this thread when all the worker threads are done
 			for (Thread t : _threads)
 			{
-				if (t.getState()!=Thread.State.TERMINATED)
+				ClientThread ct=(ClientThread)t;
+				if (!ct.isFinished())
 				{
 					alldone=false;
 				}
 
-				ClientThread ct=(ClientThread)t;
 				totalops+=ct.getOpsDone();
 			}
 
@@ -120,192 +128,6 @@ class StatusThread extends Thread
 	}
 }
 
-/**
- * A thread for executing transactions or data inserts to the database.
- * 
- * @author cooperb
- *
- */
-class ClientThread extends Thread
-{
-	DB _db;
-	boolean _dotransactions;
-	Workload _workload;
-	int _opcount;
-	double _target;
-
-	int _opsdone;
-	int _threadid;
-	int _threadcount;
-	Object _workloadstate;
-	Properties _props;
-
-
-	/**
-	 * Constructor.
-	 * 
-	 * @param db the DB implementation to use
-	 * @param dotransactions true to do transactions, false to insert data
-	 * @param workload the workload to use
-	 * @param threadid the id of this thread 
-	 * @param threadcount the total number of threads 
-	 * @param props the properties defining the experiment
-	 * @param opcount the number of operations (transactions or inserts) to do
-	 * @param targetperthreadperms target number of operations per thread per ms
-	 */
-	public ClientThread(DB db, boolean dotransactions, Workload workload, int threadid, int threadcount, Properties props, int opcount, double targetperthreadperms)
-	{
-		//TODO: consider removing threadcount and threadid
-		_db=db;
-		_dotransactions=dotransactions;
-		_workload=workload;
-		_opcount=opcount;
-		_opsdone=0;
-		_target=targetperthreadperms;
-		_threadid=threadid;
-		_threadcount=threadcount;
-		_props=props;
-		//System.out.println("Interval = "+interval);
-	}
-
-	public int getOpsDone()
-	{
-		return _opsdone;
-	}
-
-	public void run()
-	{
-		try
-		{
-			_db.init();
-		}
-		catch (DBException e)
-		{
-			e.printStackTrace();
-			e.printStackTrace(System.out);
-			return;
-		}
-
-		try
-		{
-			_workloadstate=_workload.initThread(_props,_threadid,_threadcount);
-		}
-		catch (WorkloadException e)
-		{
-			e.printStackTrace();
-			e.printStackTrace(System.out);
-			return;
-		}
-
-		//spread the thread operations out so they don't all hit the DB at the same time
-		try
-		{
-		   //GH issue 4 - throws exception if _target>1 because random.nextInt argument must be >0
-		   //and the sleep() doesn't make sense for granularities < 1 ms anyway
-		   if ( (_target>0) && (_target<=1.0) ) 
-		   {
-		      sleep(Utils.random().nextInt((int)(1.0/_target)));
-		   }
-		}
-		catch (InterruptedException e)
-		{
-		  // do nothing.
-		}
-		
-		try
-		{
-			if (_dotransactions)
-			{
-				long st=System.currentTimeMillis();
-
-				while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
-				{
-
-					if (!_workload.doTransaction(_db,_workloadstate))
-					{
-						break;
-					}
-
-					_opsdone++;
-
-					//throttle the operations
-					if (_target>0)
-					{
-						//this is more accurate than other throttling approaches we have tried,
-						//like sleeping for (1/target throughput)-operation latency,
-						//because it smooths timing inaccuracies (from sleep() taking an int, 
-						//current time in millis) over many operations
-						while (System.currentTimeMillis()-st<((double)_opsdone)/_target)
-						{
-							try
-							{
-								sleep(1);
-							}
-							catch (InterruptedException e)
-							{
-							  // do nothing.
-							}
-
-						}
-					}
-				}
-			}
-			else
-			{
-				long st=System.currentTimeMillis();
-
-				while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
-				{
-
-					if (!_workload.doInsert(_db,_workloadstate))
-					{
-						break;
-					}
-
-					_opsdone++;
-
-					//throttle the operations
-					if (_target>0)
-					{
-						//this is more accurate than other throttling approaches we have tried,
-						//like sleeping for (1/target throughput)-operation latency,
-						//because it smooths timing inaccuracies (from sleep() taking an int, 
-						//current time in millis) over many operations
-						while (System.currentTimeMillis()-st<((double)_opsdone)/_target)
-						{
-							try 
-							{
-								sleep(1);
-							}
-							catch (InterruptedException e)
-							{
-							  // do nothing.
-							}
-						}
-					}
-				}
-			}
-		}
-		catch (Exception e)
-		{
-			e.printStackTrace();
-			e.printStackTrace(System.out);
-			System.exit(0);
-		}
-
-		try
-		{
-			_db.cleanup();
-		}
-		catch (DBException e)
-		{
-			e.printStackTrace();
-			e.printStackTrace(System.out);
-			return;
-		}
-	}
-}
-
 /**
  * Main class for executing YCSB.
  */
@@ -330,6 +152,75 @@ public class Client
    */
   public static final String MAX_EXECUTION_TIME = "maxexecutiontime";
 
+	/**
+	 * Whether to run open loop when a target throughput is set. In open loop mode each operation has an intended
+	 * start time derived from the target rate, and operations are issued on that schedule even when the database
+	 * stalls, instead of only after the previous operation has returned. Latencies are then also reported measured
+	 * from the intended start time, under "Intended-" prefixed names, which corrects for coordinated omission, and
+	 * how late each operation was issued is reported as "BEHIND-SCHEDULE". Set it to false to report service
+	 * times alone.
+	 */
+	public static final String OPEN_LOOP_PROPERTY="openloop";
+
+	public static final String OPEN_LOOP_PROPERTY_DEFAULT="true";
+
+	/**
+	 * The seed of all random choices made by the workload and the clients. Runs with the same seed, number of
+	 * threads and workload generate the same keys and values in the same order. If unset, every run differs.
+	 */
+	public static final String SEED_PROPERTY="seed";
+
+	/**
+	 * The number of carrier threads to run the clients on. By default each of the "threadcount" clients gets
+	 * a thread of its own; when this is set, the clients instead run as lightweight tasks spread over this many
+	 * carrier threads, which allows modelling many thousands of concurrent clients.
+	 */
+	public static final String CARRIER_COUNT_PROPERTY="carriercount";
+
+	public static final String CARRIER_COUNT_PROPERTY_DEFAULT="0";
+
+	/**
+	 * How many records each client thread inserts at once in the load phase, with DB.insertBatch(). Each batch is
+	 * measured as one "INSERT-BATCH" operation, while a target throughput still counts records.
+	 */
+	public static final String BATCH_SIZE_PROPERTY="batchsize";
+
+	public static final String BATCH_SIZE_PROPERTY_DEFAULT="1";
+
+	/**
+	 * The file to export measurements to. If unset they are written to stdout.
+	 */
+	public static final String EXPORT_FILE_PROPERTY="exportfile";
+
+	/**
+	 * A comma separated list of phases to run one after the other in this process, e.g. "load,warmup,run".
+	 * The phases share the workload and DB instances, so the store stays open and the JIT stays warm. The
+	 * properties the client reads for each phase can be overridden for one phase by prefixing them with
+	 * "phase.&lt;name&gt;.", e.g. "phase.warmup.maxexecutiontime=60" or "phase.run.target=50000": the operation
+	 * and record counts, maxexecutiontime, target, openloop, batchsize, carriercount, the pacing and load profile
+	 * properties, the export and histogram log settings, and the type and measured flag of the phase. Workload
+	 * properties are only read once, when the workload is initialized, and measurement properties such as
+	 * measurementtype once for the whole run, so overriding those has no effect. The number of threads is the
+	 * same for all phases.
+	 */
+	public static final String PHASES_PROPERTY="phases";
+
+	public static final String PHASE_PROPERTY_PREFIX="phase.";
+
+	/**
+	 * The kind of a phase, "load" to insert data or "run" to do transactions. Set per phase, e.g. "phase.load.type=load".
+	 */
+	public static final String PHASE_TYPE_PROPERTY="type";
+
+	public static final String PHASE_TYPE_PROPERTY_DEFAULT="run";
+
+	/**
+	 * Whether a phase counts toward the final report. Set per phase, e.g. "phase.warmup.measured=false".
+	 */
+	public static final String PHASE_MEASURED_PROPERTY="measured";
+
+	public static final String PHASE_MEASURED_PROPERTY_DEFAULT="true";
+
 	public static void usageMessage()
 	{
 		System.out.println("Usage: java com.yahoo.ycsb.Client [options]");
@@ -349,11 +240,25 @@ public class Client
 		System.out.println("                  values in the propertyfile");
 		System.out.println("  -s:  show status during run (default: no status)");
 		System.out.println("  -l label:  use label for status (e.g. to label one experiment out of a whole batch)");
+		System.out.println("  -p phases=load,warmup,run:  run several phases in one process instead of -load or -t;");
+		System.out.println("                  see Client.PHASES_PROPERTY for the per phase properties");
+		System.out.println("  -p loadprofile=ramp|step|sine|trace:  vary the target over time instead of a constant -target;");
+		System.out.println("                  see LoadProfile for the profile properties");
+		System.out.println("  -p concurrency.adaptive=true:  find the best number of threads, up to -threads, while running;");
+		System.out.println("                  see ConcurrencyController for the controller properties");
+		System.out.println("  -p measurementtype=hdrhistogram -p hdrhistogram.log=file:  log latency histograms every second,");
+		System.out.println("                  see HistogramLogReader to report on any part of the run");
+		System.out.println("  -p search=true:  search for the highest target that meets a latency bound instead of -t;");
+		System.out.println("                  see SaturationSearch for the search properties");
+		System.out.println("  -p seed=n:  derive all random choices from the given seed, so the run can be repeated exactly");
+		System.out.println("  -p batchsize=n:  insert n records at once in the load phase, if the DB supports bulk loading");
 		System.out.println("");
 		System.out.println("Required properties:");
 		System.out.println("  "+WORKLOAD_PROPERTY+": the name of the workload class to use (e.g. com.yahoo.ycsb.workloads.CoreWorkload)");
 		System.out.println("");
 		System.out.println("To run the transaction phase from multiple servers, start a separate client on each.");
+		System.out.println("To combine their results correctly, start a coordinator with \"-p coordinator.workers=n\"");
+		System.out.println("and run each client with \"-p coordinator=host:port\"; see Coordinator for details.");
 		System.out.println("To run the load phase from multiple servers, start a separate client on each; additionally,");
 		System.out.println("use the \"insertcount\" and \"insertstart\" properties to divide up the records to be inserted");
 	}
@@ -373,50 +278,490 @@ public class Client
 	/**
 	 * Exports the measurements to either sysout or a file using the exporter
 	 * loaded from conf.
+	 * @param exportFile the file to write to, or null for stdout
+	 * @param data the combined measurements to export, as returned by Measurements.snapshot()
+	 * @param intervals the throughput recorded per interval, or null
 	 * @throws IOException Either failed to write to output stream or failed to close it.
 	 */
-	private static void exportMeasurements(Properties props, int opcount, long runtime)
+	static void exportMeasurements(Properties props, String exportFile, long opcount, long runtime, Map<String,OneMeasurement> data, ThroughputRecorder intervals)
 			throws IOException
 	{
 		MeasurementsExporter exporter = null;
 		try
 		{
-			// if no destination file is provided the results will be written to stdout
-			OutputStream out;
-			String exportFile = props.getProperty("exportfile");
-			if (exportFile == null)
+			exporter = newExporter(props, exportFile);
+
+			exporter.write("OVERALL", "RunTime(ms)", runtime);
+            long throughput = 1000L * opcount / runtime;
+            exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
+
+			Measurements.exportMeasurements(data, exporter);
+
+			if (intervals != null)
+			{
+				intervals.exportMeasurements(exporter);
+			}
+		} finally
+		{
+			if (exporter != null)
+			{
+				exporter.close();
+			}
+		}
+	}
+
+	/**
+	 * Create the exporter loaded from conf, writing to either sysout or a file.
+	 * @param exportFile the file to write to, or null for stdout
+	 * @throws IOException Thrown if the file could not be opened.
+	 */
+	static MeasurementsExporter newExporter(Properties props, String exportFile) throws IOException
+	{
+		// if no destination file is provided the results will be written to stdout
+		OutputStream out;
+		if (exportFile == null)
+		{
+			// don't let the exporter close stdout, there may be more to write
+			out = new FilterOutputStream(System.out)
+			{
+				public void write(byte[] b, int off, int len) throws IOException
+				{
+					this.out.write(b, off, len);
+				}
+
+				public void close() throws IOException
+				{
+					flush();
+				}
+			};
+		} else
+		{
+			out = new FileOutputStream(exportFile);
+		}
+
+		// if no exporter is provided the default text one will be used
+		String exporterStr = props.getProperty("exporter", "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
+		try
+		{
+			return (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class).newInstance(out);
+		} catch (Exception e)
+		{
+			System.err.println("Could not find exporter " + exporterStr
+					+ ", will use default text reporter.");
+			e.printStackTrace();
+			return new TextMeasurementsExporter(out);
+		}
+	}
+
+	/**
+	 * The outcome of running one phase of the benchmark.
+	 */
+	static class PhaseResult
+	{
+		long opsDone;
+		long runtime;
+		ThroughputRecorder throughput;
+	}
+
+	/**
+	 * Create the DB instances, one per client thread.
+	 */
+	static Vector<DB> newDBs(String dbname, Properties props, int threadcount)
+	{
+		Vector<DB> dbs=new Vector<DB>();
+		for (int threadid=0; threadid<threadcount; threadid++)
+		{
+			DB db=null;
+			try
 			{
-				out = System.out;
-			} else
+				db=DBFactory.newDB(dbname,props);
+			}
+			catch (UnknownDBException e)
 			{
-				out = new FileOutputStream(exportFile);
+				System.out.println("Unknown DB "+dbname);
+				System.exit(0);
 			}
+			dbs.add(db);
+		}
+		return dbs;
+	}
 
-			// if no exporter is provided the default text one will be used
-			String exporterStr = props.getProperty("exporter", "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
+	/**
+	 * Initialize DB instances that are shared by several phases, and so are not initialized by the clients.
+	 */
+	static void initDBs(Vector<DB> dbs)
+	{
+		for (DB db : dbs)
+		{
 			try
 			{
-				exporter = (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class).newInstance(out);
-			} catch (Exception e)
+				db.init();
+			}
+			catch (DBException e)
 			{
-				System.err.println("Could not find exporter " + exporterStr
-						+ ", will use default text reporter.");
 				e.printStackTrace();
-				exporter = new TextMeasurementsExporter(out);
+				e.printStackTrace(System.out);
+				System.exit(0);
 			}
+		}
+	}
 
-			exporter.write("OVERALL", "RunTime(ms)", runtime);
-            long throughput = 1000L * opcount / runtime;
-            exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
+	/**
+	 * Clean up DB instances initialized with initDBs().
+	 */
+	static void cleanupDBs(Vector<DB> dbs)
+	{
+		for (DB db : dbs)
+		{
+			try
+			{
+				db.cleanup();
+			}
+			catch (DBException e)
+			{
+				e.printStackTrace();
+				e.printStackTrace(System.out);
+			}
+		}
+	}
 
-			Measurements.getMeasurements().exportMeasurements(exporter);
-		} finally
+	/**
+	 * Return the number of operations a phase should do: the operation count for the transaction phase,
+	 * or the insert count (or else the record count) for the load phase.
+	 */
+	static long getOperationCount(Properties props, boolean dotransactions)
+	{
+		if (dotransactions)
 		{
-			if (exporter != null)
+			return Long.parseLong(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
+		}
+		else if (props.containsKey(INSERT_COUNT_PROPERTY))
+		{
+			return Long.parseLong(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
+		}
+		else
+		{
+			return Long.parseLong(props.getProperty(RECORD_COUNT_PROPERTY,"0"));
+		}
+	}
+
+	/**
+	 * Run one phase of the benchmark: one client per DB instance, with the operation count, target and
+	 * maximum execution time given by the properties.
+	 * 
+	 * @param dbs the DB instances, one per client thread
+	 * @param dotransactions true to do transactions, false to insert data
+	 * @param ownsdbs true if the clients should init and cleanup their DB instances themselves
+	 */
+	static PhaseResult runPhase(Properties props, Workload workload, Vector<DB> dbs, boolean dotransactions, boolean ownsdbs, boolean status, String label)
+	{
+		int threadcount=dbs.size();
+		long opcount=getOperationCount(props,dotransactions);
+		long maxExecutionTime = Integer.parseInt(props.getProperty(MAX_EXECUTION_TIME, "0"));
+		int target=Integer.parseInt(props.getProperty("target","0"));
+
+		//compute the target throughput
+		double targetperthreadperms=-1;
+		if (target>0)
+		{
+			double targetperthread=((double)target)/((double)threadcount);
+			targetperthreadperms=targetperthread/1000.0;
+		}
+
+		//a load profile replaces the constant target
+		LoadProfile profile=null;
+		try
+		{
+			profile=LoadProfile.newLoadProfile(props);
+		}
+		catch (WorkloadException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			System.exit(0);
+		}
+
+		Vector<Thread> threads=new Vector<Thread>();
+
+		for (int threadid=0; threadid<threadcount; threadid++)
+		{
+			ClientThread t=null;
+			try
 			{
-				exporter.close();
+				t=new ClientThread(dbs.get(threadid),dotransactions,workload,threadid,threadcount,props,opcount/threadcount,targetperthreadperms);
+				t._ownsdb=ownsdbs;
+				if (profile!=null)
+				{
+					t.setLoadProfile(profile);
+				}
+			}
+			catch (WorkloadException e)
+			{
+				e.printStackTrace();
+				e.printStackTrace(System.out);
+				System.exit(0);
 			}
+
+			threads.add(t);
+			//t.start();
 		}
+
+		//either every client runs on a thread of its own, or they are spread over the carrier threads
+		Vector<Thread> runners=threads;
+		int carriercount=Integer.parseInt(props.getProperty(CARRIER_COUNT_PROPERTY,CARRIER_COUNT_PROPERTY_DEFAULT));
+		if (carriercount>0)
+		{
+			carriercount=Math.min(carriercount,threadcount);
+			System.err.println("Running "+threadcount+" clients on "+carriercount+" carrier threads.");
+			runners=new Vector<Thread>();
+			for (int carrierid=0; carrierid<carriercount; carrierid++)
+			{
+				List<ClientThread> clients=new ArrayList<ClientThread>();
+				for (int threadid=carrierid; threadid<threadcount; threadid+=carriercount)
+				{
+					clients.add((ClientThread)threads.get(threadid));
+				}
+				runners.add(new CarrierThread(clients));
+			}
+		}
+
+		StatusThread statusthread=null;
+
+		if (status)
+		{
+			boolean standardstatus=false;
+			if (props.getProperty("measurementtype","").compareTo("timeseries")==0) 
+			{
+				standardstatus=true;
+			}	
+			statusthread=new StatusThread(threads,label,standardstatus);
+			statusthread.start();
+		}
+
+		ThroughputRecorder throughput=null;
+		if (profile!=null)
+		{
+			profile.start(System.nanoTime());
+			throughput=new ThroughputRecorder(threads,profile,Long.parseLong(props.getProperty(LoadProfile.INTERVAL_PROPERTY,LoadProfile.INTERVAL_PROPERTY_DEFAULT)));
+			throughput.start();
+		}
+
+		HistogramLogWriter histogramlog=null;
+		String histogramlogfile=props.getProperty(HistogramLogWriter.FILE_PROPERTY);
+		if (histogramlogfile!=null)
+		{
+			if (props.getProperty("measurementtype","").compareTo("hdrhistogram")!=0)
+			{
+				System.out.println(HistogramLogWriter.FILE_PROPERTY+" needs measurementtype=hdrhistogram");
+				System.exit(0);
+			}
+			try
+			{
+				histogramlog=new HistogramLogWriter(Measurements.getMeasurements(),histogramlogfile,Long.parseLong(props.getProperty(HistogramLogWriter.INTERVAL_PROPERTY,HistogramLogWriter.INTERVAL_PROPERTY_DEFAULT)));
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+				e.printStackTrace(System.out);
+				System.exit(0);
+			}
+			histogramlog.start();
+		}
+
+		long st=System.currentTimeMillis();
+
+		for (Thread t : runners)
+		{
+			t.start();
+		}
+		
+    Thread terminator = null;
+    
+    if (maxExecutionTime > 0) {
+      terminator = new TerminatorThread(maxExecutionTime, runners, workload);
+      terminator.start();
+    }
+    
+    long opsDone = 0;
+
+		for (Thread t : runners)
+		{
+			try
+			{
+				t.join();
+			}
+			catch (InterruptedException e)
+			{
+			}
+		}
+
+		for (Thread t : threads)
+		{
+			opsDone += ((ClientThread)t).getOpsDone();
+		}
+
+		long en=System.currentTimeMillis();
+		
+		if (terminator != null && !terminator.isInterrupted()) {
+      terminator.interrupt();
+    }
+
+		if (status)
+		{
+			statusthread.interrupt();
+		}
+
+		if (throughput!=null)
+		{
+			throughput.interrupt();
+			try
+			{
+				throughput.join();
+			}
+			catch (InterruptedException e)
+			{
+			}
+		}
+
+		if (histogramlog!=null)
+		{
+			histogramlog.interrupt();
+			try
+			{
+				histogramlog.join();
+			}
+			catch (InterruptedException e)
+			{
+			}
+		}
+
+		PhaseResult result=new PhaseResult();
+		result.opsDone=opsDone;
+		result.runtime=en-st;
+		result.throughput=throughput;
+		return result;
+	}
+
+	/**
+	 * Run the phases listed in the "phases" property one after the other in this process, with the same
+	 * workload and DB instances. Measurements are reset between phases and each phase is exported on its
+	 * own; the final report combines only the measured phases.
+	 */
+	static void runPhases(Properties props, Workload workload, String dbname, int threadcount, String[] phases, boolean status, String label)
+	{
+		Vector<DB> dbs=newDBs(dbname,props,threadcount);
+		initDBs(dbs);
+
+		Measurements measurements=Measurements.getMeasurements();
+		Map<String,OneMeasurement> measured=new HashMap<String,OneMeasurement>();
+		long measuredOps=0;
+		long measuredRuntime=0;
+
+		for (String phase : phases)
+		{
+			phase=phase.trim();
+			Properties phaseprops=getPhaseProperties(props,phase);
+			String type=phaseprops.getProperty(PHASE_TYPE_PROPERTY,PHASE_TYPE_PROPERTY_DEFAULT);
+			if (!type.equals("load") && !type.equals("run"))
+			{
+				System.out.println("Unknown type \""+type+"\" for phase "+phase);
+				System.exit(0);
+			}
+
+			//as with export files, each phase logs interval histograms to its own file
+			if (props.getProperty(PHASE_PROPERTY_PREFIX+phase+"."+HistogramLogWriter.FILE_PROPERTY)==null && props.getProperty(HistogramLogWriter.FILE_PROPERTY)!=null)
+			{
+				phaseprops.setProperty(HistogramLogWriter.FILE_PROPERTY,props.getProperty(HistogramLogWriter.FILE_PROPERTY)+"."+phase);
+			}
+
+			System.err.println("Starting phase "+phase+".");
+			workload.clearStopRequest();
+			measurements.reset();
+
+			PhaseResult result=runPhase(phaseprops,workload,dbs,type.equals("run"),false,status,label+phase+" ");
+
+			Map<String,OneMeasurement> data=measurements.snapshot();
+			if (Boolean.parseBoolean(phaseprops.getProperty(PHASE_MEASURED_PROPERTY,PHASE_MEASURED_PROPERTY_DEFAULT)))
+			{
+				Measurements.merge(measured,data);
+				measuredOps+=result.opsDone;
+				measuredRuntime+=result.runtime;
+			}
+
+			//each phase goes to its own export file, derived from the overall one unless given explicitly
+			String exportFile=props.getProperty(PHASE_PROPERTY_PREFIX+phase+"."+EXPORT_FILE_PROPERTY);
+			if (exportFile==null && props.getProperty(EXPORT_FILE_PROPERTY)!=null)
+			{
+				exportFile=props.getProperty(EXPORT_FILE_PROPERTY)+"."+phase;
+			}
+			if (exportFile==null)
+			{
+				System.out.println("Phase "+phase+":");
+			}
+			try
+			{
+				exportMeasurements(phaseprops, exportFile, result.opsDone, result.runtime, data, result.throughput);
+			}
+			catch (IOException e)
+			{
+				System.err.println("Could not export measurements, error: " + e.getMessage());
+				e.printStackTrace();
+				System.exit(-1);
+			}
+		}
+
+		cleanupDBs(dbs);
+
+		try
+		{
+			workload.cleanup();
+		}
+		catch (WorkloadException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			System.exit(0);
+		}
+
+		String exportFile=props.getProperty(EXPORT_FILE_PROPERTY);
+		if (exportFile==null)
+		{
+			System.out.println("Measured phases:");
+		}
+		try
+		{
+			exportMeasurements(props, exportFile, measuredOps, measuredRuntime, measured, null);
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not export measurements, error: " + e.getMessage());
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+
+	/**
+	 * Return the properties for one phase: all the properties, with those prefixed by "phase.&lt;name&gt;."
+	 * overriding the unprefixed ones.
+	 */
+	static Properties getPhaseProperties(Properties props, String phase)
+	{
+		Properties phaseprops=new Properties();
+		String prefix=PHASE_PROPERTY_PREFIX+phase+".";
+		for (Enumeration e=props.propertyNames(); e.hasMoreElements(); )
+		{
+			String prop=(String)e.nextElement();
+			phaseprops.setProperty(prop,props.getProperty(prop));
+		}
+		for (Enumeration e=props.propertyNames(); e.hasMoreElements(); )
+		{
+			String prop=(String)e.nextElement();
+			if (prop.startsWith(prefix))
+			{
+				phaseprops.setProperty(prop.substring(prefix.length()),props.getProperty(prop));
+			}
+		}
+		return phaseprops;
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -427,7 +772,6 @@ public class Client
 		Properties fileprops=new Properties();
 		boolean dotransactions=true;
 		int threadcount=1;
-		int target=0;
 		boolean status=false;
 		String label="";
 
@@ -594,20 +938,42 @@ public class Client
 			System.exit(0);
 		}
 		
-		long maxExecutionTime = Integer.parseInt(props.getProperty(MAX_EXECUTION_TIME, "0"));
+		if (props.getProperty(Coordinator.WORKERS_PROPERTY)!=null)
+		{
+			Coordinator.run(props);
+			System.exit(0);
+		}
 
-		//get number of threads, target and db
+		//as a worker, take the share of the run assigned by the coordinator before setting up the workload
+		Worker worker=null;
+		if (props.getProperty(Worker.COORDINATOR_PROPERTY)!=null)
+		{
+			//a worker runs one phase with a fixed number of threads, in step with the others
+			String[] unsupported={PHASES_PROPERTY,SaturationSearch.SEARCH_PROPERTY,ConcurrencyController.ADAPTIVE_PROPERTY};
+			for (String prop : unsupported)
+			{
+				String value=props.getProperty(prop);
+				if (value!=null && (prop.equals(PHASES_PROPERTY) || Boolean.parseBoolean(value)))
+				{
+					System.out.println("Can't run as a worker of a coordinator with "+prop+"="+value);
+					System.exit(0);
+				}
+			}
+			try
+			{
+				worker=new Worker(props);
+			}
+			catch (IOException e)
+			{
+				System.err.println("Could not connect to the coordinator, error: " + e.getMessage());
+				e.printStackTrace();
+				System.exit(-1);
+			}
+		}
+
+		//get number of threads and db
 		threadcount=Integer.parseInt(props.getProperty("threadcount","1"));
 		dbname=props.getProperty("db","com.yahoo.ycsb.BasicDB");
-		target=Integer.parseInt(props.getProperty("target","0"));
-		
-		//compute the target throughput
-		double targetperthreadperms=-1;
-		if (target>0)
-		{
-			double targetperthread=((double)target)/((double)threadcount);
-			targetperthreadperms=targetperthread/1000.0;
-		}	 
 
 		System.out.println("YCSB Client 0.1");
 		System.out.print("Command line:");
@@ -641,6 +1007,11 @@ public class Client
 		
 		//set up measurements
 		Measurements.setProperties(props);
+
+		if (props.getProperty(SEED_PROPERTY)!=null)
+		{
+			Utils.setSeed(Long.parseLong(props.getProperty(SEED_PROPERTY)));
+		}
 		
 		//load the workload
 		ClassLoader classLoader = Client.class.getClassLoader();
@@ -677,94 +1048,45 @@ public class Client
 
 		System.err.println("Starting test.");
 
-		int opcount;
-		if (dotransactions)
+		String phases=props.getProperty(PHASES_PROPERTY);
+		if (phases!=null)
 		{
-			opcount=Integer.parseInt(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
+			runPhases(props,workload,dbname,threadcount,phases.split(","),status,label);
+			System.exit(0);
 		}
-		else
+
+		if (Boolean.parseBoolean(props.getProperty(SaturationSearch.SEARCH_PROPERTY,SaturationSearch.SEARCH_PROPERTY_DEFAULT)))
 		{
-			if (props.containsKey(INSERT_COUNT_PROPERTY))
-			{
-				opcount=Integer.parseInt(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
-			}
-			else
-			{
-				opcount=Integer.parseInt(props.getProperty(RECORD_COUNT_PROPERTY,"0"));
-			}
+			new SaturationSearch(props,workload,dbname,threadcount,status,label).run();
+			System.exit(0);
 		}
 
-		Vector<Thread> threads=new Vector<Thread>();
-
-		for (int threadid=0; threadid<threadcount; threadid++)
+		PhaseResult result;
+		if (worker!=null)
 		{
-			DB db=null;
+			//initialize everything before the synchronized start, so the workers really start together
+			Vector<DB> dbs=newDBs(dbname,props,threadcount);
+			initDBs(dbs);
 			try
 			{
-				db=DBFactory.newDB(dbname,props);
+				worker.awaitStart();
 			}
-			catch (UnknownDBException e)
+			catch (IOException e)
 			{
-				System.out.println("Unknown DB "+dbname);
-				System.exit(0);
+				System.err.println("Could not start with the coordinator, error: " + e.getMessage());
+				e.printStackTrace();
+				System.exit(-1);
 			}
-
-			Thread t=new ClientThread(db,dotransactions,workload,threadid,threadcount,props,opcount/threadcount,targetperthreadperms);
-
-			threads.add(t);
-			//t.start();
-		}
-
-		StatusThread statusthread=null;
-
-		if (status)
-		{
-			boolean standardstatus=false;
-			if (props.getProperty("measurementtype","").compareTo("timeseries")==0) 
-			{
-				standardstatus=true;
-			}	
-			statusthread=new StatusThread(threads,label,standardstatus);
-			statusthread.start();
+			result=runPhase(props,workload,dbs,dotransactions,false,status,label);
+			cleanupDBs(dbs);
 		}
-
-		long st=System.currentTimeMillis();
-
-		for (Thread t : threads)
+		else if (dotransactions && Boolean.parseBoolean(props.getProperty(ConcurrencyController.ADAPTIVE_PROPERTY,ConcurrencyController.ADAPTIVE_PROPERTY_DEFAULT)))
 		{
-			t.start();
+			result=new ConcurrencyController(props,workload,dbname).run();
 		}
-		
-    Thread terminator = null;
-    
-    if (maxExecutionTime > 0) {
-      terminator = new TerminatorThread(maxExecutionTime, threads, workload);
-      terminator.start();
-    }
-    
-    int opsDone = 0;
-
-		for (Thread t : threads)
-		{
-			try
-			{
-				t.join();
-				opsDone += ((ClientThread)t).getOpsDone();
-			}
-			catch (InterruptedException e)
-			{
-			}
-		}
-
-		long en=System.currentTimeMillis();
-		
-		if (terminator != null && !terminator.isInterrupted()) {
-      terminator.interrupt();
-    }
-
-		if (status)
+		else
 		{
-			statusthread.interrupt();
+			result=runPhase(props,workload,newDBs(dbname,props,threadcount),dotransactions,true,status,label);
 		}
 
 		try
@@ -778,9 +1100,24 @@ public class Client
 			System.exit(0);
 		}
 
+		Map<String,OneMeasurement> data=Measurements.getMeasurements().snapshot();
+		if (worker!=null)
+		{
+			try
+			{
+				worker.sendResult(result.opsDone, result.runtime, data);
+			}
+			catch (IOException e)
+			{
+				System.err.println("Could not send measurements to the coordinator, error: " + e.getMessage());
+				e.printStackTrace();
+				System.exit(-1);
+			}
+		}
+
 		try
 		{
-			exportMeasurements(props, opsDone, en - st);
+			exportMeasurements(props, props.getProperty(EXPORT_FILE_PROPERTY), result.opsDone, result.runtime, data, result.throughput);
 		} catch (IOException e)
 		{
 			System.err.println("Could not export measurements, error: " + e.getMessage());
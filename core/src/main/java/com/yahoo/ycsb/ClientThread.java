@@ -0,0 +1,294 @@
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.Random;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.pacing.LoadProfile;
+import com.yahoo.ycsb.pacing.Pacer;
+
+/**
+ * A thread for executing transactions or data inserts to the database.
+ * 
+ * A ClientThread is also the unit of per-client state: when clients run as lightweight tasks
+ * (see {@link CarrierThread}) it is never started itself, and a carrier thread drives it through
+ * initClient(), doOperation() and cleanupClient() instead.
+ * 
+ * @author cooperb
+ *
+ */
+class ClientThread extends Thread
+{
+	DB _db;
+	boolean _dotransactions;
+	Workload _workload;
+	long _opcount;
+	double _target;
+
+	long _opsdone;
+	int _threadid;
+	int _threadcount;
+	Object _workloadstate;
+	Properties _props;
+	boolean _openloop;
+	Pacer _pacer;
+	Measurements _measurements;
+	//the random stream of this client, so runs with the same seed repeat however the clients are scheduled
+	Random _random;
+	volatile boolean _finished;
+	volatile boolean _stoprequested;
+
+	//whether this client inits and cleans up its DB, rather than whoever runs several phases on it
+	boolean _ownsdb=true;
+
+	//when the next operation is due, if this client runs as a task on a carrier thread
+	long _nextOpTimeNanos;
+
+	//how many records to insert at once in the load phase
+	int _batchsize=1;
+
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param db the DB implementation to use
+	 * @param dotransactions true to do transactions, false to insert data
+	 * @param workload the workload to use
+	 * @param threadid the id of this thread 
+	 * @param threadcount the total number of threads 
+	 * @param props the properties defining the experiment
+	 * @param opcount the number of operations (transactions or inserts) to do
+	 * @param targetperthreadperms target number of operations per thread per ms
+	 * @throws WorkloadException if the pacing properties are invalid
+	 */
+	public ClientThread(DB db, boolean dotransactions, Workload workload, int threadid, int threadcount, Properties props, long opcount, double targetperthreadperms) throws WorkloadException
+	{
+		//TODO: consider removing threadcount and threadid
+		_db=db;
+		_dotransactions=dotransactions;
+		_workload=workload;
+		_opcount=opcount;
+		_opsdone=0;
+		_target=targetperthreadperms;
+		_threadid=threadid;
+		_threadcount=threadcount;
+		_props=props;
+		if (!dotransactions)
+		{
+			_batchsize=Math.max(1,Integer.parseInt(props.getProperty(Client.BATCH_SIZE_PROPERTY,Client.BATCH_SIZE_PROPERTY_DEFAULT)));
+		}
+		if (_target>0)
+		{
+			//the target counts records, but a whole batch is paced as one operation
+			_pacer=Pacer.newPacer(props,_target*1000.0/_batchsize);
+		}
+		_openloop=(_target>0) && Boolean.parseBoolean(props.getProperty(Client.OPEN_LOOP_PROPERTY,Client.OPEN_LOOP_PROPERTY_DEFAULT));
+		_measurements=Measurements.getMeasurements();
+		_random=Utils.newRandom(threadid);
+		//System.out.println("Interval = "+interval);
+	}
+
+	/**
+	 * Follow the given load profile, doing an equal share of its rate with the other clients, instead of a constant target.
+	 */
+	void setLoadProfile(LoadProfile profile) throws WorkloadException
+	{
+		if (_pacer==null)
+		{
+			_pacer=Pacer.newPacer(_props,1.0);
+		}
+		_pacer.setLoadProfile(profile,1.0/_threadcount/_batchsize);
+		_openloop=Boolean.parseBoolean(_props.getProperty(Client.OPEN_LOOP_PROPERTY,Client.OPEN_LOOP_PROPERTY_DEFAULT));
+	}
+
+	public long getOpsDone()
+	{
+		return _opsdone;
+	}
+
+	/**
+	 * @return true once this client has done all its operations and cleaned up, or failed to start.
+	 */
+	public boolean isFinished()
+	{
+		return _finished;
+	}
+
+	/**
+	 * Start the pacing schedule, spreading the clients' first operations over one interval so they
+	 * don't all hit the DB at the same time.
+	 */
+	void startPacing(long nowNanos)
+	{
+		_pacer.start(nowNanos+(long)(_random.nextDouble()*_pacer.getIntervalNanos()));
+	}
+
+	/**
+	 * Wait until the given intended start time of the next operation. In open loop mode the schedule does
+	 * not move when earlier operations were slow; if we are already behind schedule the operation is issued
+	 * immediately, and its latency measured from the intended start time includes the time it waited to be sent.
+	 */
+	void throttle(long intendedStartTimeNanos)
+	{
+		_pacer.waitUntil(intendedStartTimeNanos);
+		if (_openloop)
+		{
+			_measurements.setIntendedStartTimeNs(intendedStartTimeNanos);
+		}
+	}
+
+	/**
+	 * Initialize the DB and the workload state of this client.
+	 * 
+	 * @return false if the client could not be initialized and should not run.
+	 */
+	boolean initClient()
+	{
+		Utils.setRandom(_random);
+		try
+		{
+			if (_ownsdb)
+			{
+				_db.init();
+			}
+		}
+		catch (DBException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			return false;
+		}
+
+		try
+		{
+			_workloadstate=_workload.initThread(_props,_threadid,_threadcount);
+		}
+		catch (WorkloadException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if this client should do another operation.
+	 */
+	boolean hasMoreOps()
+	{
+		return ((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested() && !_stoprequested;
+	}
+
+	/**
+	 * Ask this client alone to stop after its current operation, e.g. to run with fewer threads.
+	 */
+	void requestStop()
+	{
+		_stoprequested=true;
+	}
+
+	/**
+	 * Do one transaction or insert, depending on the phase.
+	 * 
+	 * @return false if the workload is done for this client.
+	 */
+	boolean doOperation()
+	{
+		boolean more;
+		if (_dotransactions)
+		{
+			more=_workload.doTransaction(_db,_workloadstate);
+		}
+		else if (_batchsize>1)
+		{
+			int count=(_opcount==0) ? _batchsize : (int)Math.min(_batchsize,_opcount-_opsdone);
+			int done=_workload.doInsertBatch(_db,_workloadstate,count);
+			_opsdone+=done;
+			return done>0;
+		}
+		else
+		{
+			more=_workload.doInsert(_db,_workloadstate);
+		}
+		if (more)
+		{
+			_opsdone++;
+		}
+		return more;
+	}
+
+	/**
+	 * Cleanup the DB of this client if it owns it, and mark it finished.
+	 */
+	void cleanupClient()
+	{
+		try
+		{
+			_workload.cleanupThread(_workloadstate);
+		}
+		catch (WorkloadException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+		}
+
+		try
+		{
+			if (_ownsdb)
+			{
+				_db.cleanup();
+			}
+		}
+		catch (DBException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+		}
+		finally
+		{
+			_finished=true;
+		}
+	}
+
+	public void run()
+	{
+		if (!initClient())
+		{
+			_finished=true;
+			return;
+		}
+
+		try
+		{
+			if (_pacer!=null)
+			{
+				startPacing(System.nanoTime());
+			}
+
+			while (hasMoreOps())
+			{
+				//throttle the operations
+				if (_pacer!=null)
+				{
+					//operations are paced against a schedule of intended start times rather than by sleeping
+					//for (1/target throughput)-operation latency, so timing inaccuracies don't accumulate
+					throttle(_pacer.next(System.nanoTime()));
+				}
+
+				if (!doOperation())
+				{
+					break;
+				}
+			}
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			System.exit(0);
+		}
+
+		cleanupClient();
+	}
+}
@@ -0,0 +1,372 @@
+package com.yahoo.ycsb;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OneMeasurement;
+
+/**
+ * Runs the transaction phase with a number of client threads that adapts to the database, instead of a fixed
+ * "threadcount". Past some concurrency more threads only queue up inside the database, adding latency but no
+ * throughput; the controller looks for that point.
+ *
+ * It starts with a few threads and measures the throughput and latency over an interval. As long as the
+ * throughput improves by enough and the latency stays within the bound, it adds threads and measures again.
+ * Once it doesn't, it goes back to the best number of threads seen and settles there.
+ *
+ * Once settled, it keeps following the database. Whenever the latency goes over the bound it retires threads, one
+ * step per interval. Every few intervals, or as soon as the throughput drops by more than the minimum gain, it probes
+ * one step up for an interval, and keeps the extra threads if the throughput improved by enough. Otherwise it
+ * probes one step down, and keeps the fewer threads if they did about as well. Failing both, it goes back. Each
+ * interval and each change of concurrency are logged. Threads are retired by asking them to stop after their
+ * current operation, which also cleans up their DB instance.
+ *
+ * The clients run without a target throughput, as the aim is to find how much the database can do. Unless run with
+ * "openloop=false", the latency bound applies to the latencies measured from the intended start times of operations
+ * that have one, e.g. those of a timed trace replay, and to the service times otherwise.
+ *
+ * Properties to control the controller:
+ * <UL>
+ * <LI><b>concurrency.adaptive</b>: whether to adapt the number of threads (default: false)
+ * <LI><b>concurrency.min</b>: the number of threads to start with (default: 1)
+ * <LI><b>concurrency.max</b>: the most threads to run (default: threadcount)
+ * <LI><b>concurrency.step</b>: how many threads to add at a time (default: 1)
+ * <LI><b>concurrency.interval</b>: how long to measure each number of threads, in milliseconds (default: 5000)
+ * <LI><b>concurrency.mingain</b>: the fraction by which the throughput must improve for more threads to be worth it (default: 0.05)
+ * <LI><b>concurrency.percentile</b>: the latency percentile to bound (default: 99)
+ * <LI><b>concurrency.latency</b>: the bound on that percentile of the latency of every operation in microseconds, or 0 for none (default: 0)
+ * <LI><b>concurrency.reprobe</b>: how many intervals to run once settled before probing again, or 0 to stay settled (default: 10)
+ * </ul>
+ */
+public class ConcurrencyController
+{
+	public static final String ADAPTIVE_PROPERTY="concurrency.adaptive";
+
+	public static final String ADAPTIVE_PROPERTY_DEFAULT="false";
+
+	public static final String MIN_PROPERTY="concurrency.min";
+
+	public static final String MIN_PROPERTY_DEFAULT="1";
+
+	public static final String MAX_PROPERTY="concurrency.max";
+
+	public static final String STEP_PROPERTY="concurrency.step";
+
+	public static final String STEP_PROPERTY_DEFAULT="1";
+
+	public static final String INTERVAL_PROPERTY="concurrency.interval";
+
+	public static final String INTERVAL_PROPERTY_DEFAULT="5000";
+
+	public static final String MIN_GAIN_PROPERTY="concurrency.mingain";
+
+	public static final String MIN_GAIN_PROPERTY_DEFAULT="0.05";
+
+	public static final String PERCENTILE_PROPERTY="concurrency.percentile";
+
+	public static final String PERCENTILE_PROPERTY_DEFAULT="99";
+
+	public static final String LATENCY_PROPERTY="concurrency.latency";
+
+	public static final String LATENCY_PROPERTY_DEFAULT="0";
+
+	public static final String REPROBE_PROPERTY="concurrency.reprobe";
+
+	public static final String REPROBE_PROPERTY_DEFAULT="10";
+
+	/**
+	 * How often to check whether the run is over, in milliseconds.
+	 */
+	static final long CHECK_INTERVAL=100;
+
+	Properties _props;
+	Workload _workload;
+	String _dbname;
+
+	int _min;
+	int _max;
+	int _step;
+	long _interval;
+	double _mingain;
+	double _percentile;
+	double _latency;
+	boolean _openloop;
+	int _reprobe;
+
+	//once settled: the concurrency settled on and the throughput of its last interval, or -1 before one was
+	//measured, the intervals left until the next probe, and the direction of the probe under way, or 0 for none
+	int _settledthreads;
+	double _settledthroughput=-1;
+	int _untilprobe;
+	int _probe;
+
+	//the running clients, the last started on top, and every client that ever ran
+	List<ClientThread> _active=new ArrayList<ClientThread>();
+	List<ClientThread> _all=new ArrayList<ClientThread>();
+
+	public ConcurrencyController(Properties props, Workload workload, String dbname)
+	{
+		_props=props;
+		_workload=workload;
+		_dbname=dbname;
+
+		_min=Integer.parseInt(props.getProperty(MIN_PROPERTY,MIN_PROPERTY_DEFAULT));
+		_max=Integer.parseInt(props.getProperty(MAX_PROPERTY,props.getProperty("threadcount","1")));
+		_step=Integer.parseInt(props.getProperty(STEP_PROPERTY,STEP_PROPERTY_DEFAULT));
+		_interval=Long.parseLong(props.getProperty(INTERVAL_PROPERTY,INTERVAL_PROPERTY_DEFAULT));
+		_mingain=Double.parseDouble(props.getProperty(MIN_GAIN_PROPERTY,MIN_GAIN_PROPERTY_DEFAULT));
+		_percentile=Double.parseDouble(props.getProperty(PERCENTILE_PROPERTY,PERCENTILE_PROPERTY_DEFAULT));
+		_latency=Double.parseDouble(props.getProperty(LATENCY_PROPERTY,LATENCY_PROPERTY_DEFAULT));
+		_openloop=Boolean.parseBoolean(props.getProperty(Client.OPEN_LOOP_PROPERTY,Client.OPEN_LOOP_PROPERTY_DEFAULT));
+		_reprobe=Integer.parseInt(props.getProperty(REPROBE_PROPERTY,REPROBE_PROPERTY_DEFAULT));
+		_untilprobe=_reprobe;
+		_min=Math.max(1,Math.min(_min,_max));
+	}
+
+	/**
+	 * Run the transaction phase until the operation count is reached or the maximum execution time is up.
+	 */
+	public Client.PhaseResult run()
+	{
+		long opcount=Client.getOperationCount(_props,true);
+		long maxExecutionTime=Integer.parseInt(_props.getProperty(Client.MAX_EXECUTION_TIME,"0"));
+		Measurements measurements=Measurements.getMeasurements();
+		DecimalFormat d=new DecimalFormat("#.##");
+
+		long st=System.currentTimeMillis();
+		setConcurrency(_min);
+
+		Map<String,OneMeasurement> before=measurements.snapshot();
+		long beforeops=getOpsDone();
+		long beforetime=System.nanoTime();
+		int bestthreads=0;
+		double bestthroughput=0;
+		boolean settled=false;
+
+		while (true)
+		{
+			//wait for the end of the interval, or of the run
+			long end=System.currentTimeMillis()+_interval;
+			boolean over=false;
+			while (!over && System.currentTimeMillis()<end)
+			{
+				try
+				{
+					Thread.sleep(Math.min(CHECK_INTERVAL,end-System.currentTimeMillis()));
+				}
+				catch (InterruptedException e)
+				{
+				}
+				over=(opcount>0 && getOpsDone()>=opcount)
+						|| (maxExecutionTime>0 && System.currentTimeMillis()-st>=maxExecutionTime*1000)
+						|| allFinished();
+			}
+			if (over)
+			{
+				break;
+			}
+
+			Map<String,OneMeasurement> after=measurements.snapshot();
+			long afterops=getOpsDone();
+			long aftertime=System.nanoTime();
+			double throughput=1e9*(afterops-beforeops)/(aftertime-beforetime);
+			Map<String,OneMeasurement> interval=Measurements.since(after,before);
+			double latency=Measurements.getPercentileLatency(interval,_percentile,null,_openloop);
+			if (latency<0)
+			{
+				//without a schedule there are no latencies from intended start times
+				latency=Measurements.getPercentileLatency(interval,_percentile,null,false);
+			}
+			before=after;
+			beforeops=afterops;
+			beforetime=aftertime;
+
+			int threads=_active.size();
+			System.err.println("Concurrency "+threads+": "+d.format(throughput)+" ops/sec, "
+					+d.format(_percentile)+"th percentile latency "+d.format(latency)+" us");
+
+			boolean withinbound=_latency<=0 || latency<=_latency;
+			if (settled)
+			{
+				retune(threads,throughput,withinbound);
+				continue;
+			}
+			if (withinbound && throughput>bestthroughput*(1+_mingain))
+			{
+				bestthreads=threads;
+				bestthroughput=throughput;
+				if (threads<_max)
+				{
+					setConcurrency(Math.min(threads+_step,_max));
+					continue;
+				}
+			}
+			//more threads didn't help, or this is as many as allowed: go back to the best number of threads
+			settled=true;
+			settle(bestthreads>0 ? bestthreads : _min);
+		}
+
+		_workload.requestStop();
+		for (ClientThread t : _all)
+		{
+			try
+			{
+				t.join();
+			}
+			catch (InterruptedException e)
+			{
+			}
+		}
+
+		Client.PhaseResult result=new Client.PhaseResult();
+		result.opsDone=getOpsDone();
+		result.runtime=System.currentTimeMillis()-st;
+		return result;
+	}
+
+	/**
+	 * Run with the given number of clients from now on, until the next probe finds a better one.
+	 */
+	void settle(int threads)
+	{
+		setConcurrency(threads);
+		_settledthreads=threads;
+		_settledthroughput=-1;
+		_untilprobe=_reprobe;
+		_probe=0;
+		System.err.println("Settled on a concurrency of "+threads+" threads.");
+	}
+
+	/**
+	 * Adapt the number of clients once settled, given what the last interval did.
+	 */
+	void retune(int threads, double throughput, boolean withinbound)
+	{
+		if (_probe==0)
+		{
+			if (!withinbound && threads>_min)
+			{
+				System.err.println("Latency over the bound, retiring threads.");
+				settle(Math.max(threads-_step,_min));
+				return;
+			}
+			//probe early if the throughput dropped
+			boolean dropped=_settledthroughput>=0 && throughput<_settledthroughput*(1-_mingain);
+			_settledthroughput=throughput;
+			if (_reprobe<=0 || (--_untilprobe>0 && !dropped))
+			{
+				return;
+			}
+			_untilprobe=_reprobe;
+			if (threads<_max)
+			{
+				_probe=1;
+				setConcurrency(Math.min(threads+_step,_max));
+			}
+			else if (threads>_min)
+			{
+				_probe=-1;
+				setConcurrency(Math.max(threads-_step,_min));
+			}
+			return;
+		}
+
+		if (_probe>0)
+		{
+			if (withinbound && throughput>_settledthroughput*(1+_mingain))
+			{
+				settle(threads);
+				return;
+			}
+			if (_settledthreads>_min)
+			{
+				//more threads didn't help: see whether fewer do as well
+				_probe=-1;
+				setConcurrency(Math.max(_settledthreads-_step,_min));
+				return;
+			}
+		}
+		else if (withinbound && throughput>=_settledthroughput*(1-_mingain))
+		{
+			settle(threads);
+			return;
+		}
+		//neither did better: go back
+		_probe=0;
+		setConcurrency(_settledthreads);
+	}
+
+	/**
+	 * Start or retire clients until the given number are running.
+	 */
+	void setConcurrency(int threads)
+	{
+		while (_active.size()<threads)
+		{
+			//the ids of running clients stay below the maximum number of threads, as workloads may rely on that
+			int threadid=_active.size();
+			DB db=null;
+			try
+			{
+				db=DBFactory.newDB(_dbname,_props);
+			}
+			catch (UnknownDBException e)
+			{
+				System.out.println("Unknown DB "+_dbname);
+				System.exit(0);
+			}
+			ClientThread t=null;
+			try
+			{
+				t=new ClientThread(db,true,_workload,threadid,_max,_props,0,-1);
+			}
+			catch (WorkloadException e)
+			{
+				e.printStackTrace();
+				e.printStackTrace(System.out);
+				System.exit(0);
+			}
+			_active.add(t);
+			_all.add(t);
+			t.start();
+		}
+		while (_active.size()>threads)
+		{
+			ClientThread t=_active.remove(_active.size()-1);
+			t.requestStop();
+			try
+			{
+				t.join();
+			}
+			catch (InterruptedException e)
+			{
+			}
+		}
+	}
+
+	long getOpsDone()
+	{
+		long ops=0;
+		for (ClientThread t : _all)
+		{
+			ops+=t.getOpsDone();
+		}
+		return ops;
+	}
+
+	boolean allFinished()
+	{
+		for (ClientThread t : _active)
+		{
+			if (!t.isFinished())
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,290 @@
+package com.yahoo.ycsb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OneMeasurement;
+import com.yahoo.ycsb.measurements.OneMeasurementHdrHistogram;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+/**
+ * Coordinates a run spread over several client processes, possibly on several machines, and combines their
+ * measurements into one report. Combining the histograms rather than the reports of the workers gives correct
+ * percentiles over all operations, which averaging the percentiles of each worker does not.
+ *
+ * The coordinator listens for the given number of workers, which are ordinary clients run with the same workload
+ * and "-p coordinator=host:port". Each worker is assigned its share of the run: an equal slice of the records to
+ * insert (through "insertstart" and "insertcount"), of the operation count and of the target throughput. Once all
+ * the workers have initialized their workload and DB instances, they are told to start at the same moment. When
+ * they are done, each worker sends back its measurements, which the coordinator merges and exports.
+ *
+ * Only plain data is exchanged: the assignment as pairs of strings, and the measurements as histograms encoded by
+ * {@link OneMeasurementHdrHistogram#write(java.io.DataOutput)}, so the workers are assigned "measurementtype=hdrhistogram".
+ *
+ * Workers run a single phase with a fixed number of threads, so they can't be combined with "phases",
+ * "search" or "concurrency.adaptive".
+ *
+ * The coordinator does not authenticate its workers, so it only listens on the loopback interface unless told
+ * otherwise.
+ *
+ * Properties to control the coordinator:
+ * <UL>
+ * <LI><b>coordinator.workers</b>: the number of workers to wait for; setting it makes this process the coordinator
+ * <LI><b>coordinator.port</b>: the TCP port to listen on (default: 5700)
+ * <LI><b>coordinator.bind</b>: the address to listen on, e.g. 0.0.0.0 for workers on other machines (default: 127.0.0.1)
+ * </ul>
+ */
+public class Coordinator
+{
+	public static final String WORKERS_PROPERTY="coordinator.workers";
+
+	public static final String PORT_PROPERTY="coordinator.port";
+
+	public static final String PORT_PROPERTY_DEFAULT="5700";
+
+	public static final String BIND_PROPERTY="coordinator.bind";
+
+	public static final String BIND_PROPERTY_DEFAULT="127.0.0.1";
+
+	//sent first by the coordinator, so workers of an incompatible build fail at once
+	static final long MAGIC=0x5943534243303032L; // "YCSBC002"
+
+	//messages from a worker once it is ready to run, and from the coordinator to start the run
+	static final String READY="ready";
+	static final String START="start";
+
+	/**
+	 * Run the coordinator: wait for the workers, start them together, then combine and export their measurements.
+	 */
+	public static void run(Properties props)
+	{
+		int workers=Integer.parseInt(props.getProperty(WORKERS_PROPERTY));
+		int port=Integer.parseInt(props.getProperty(PORT_PROPERTY,PORT_PROPERTY_DEFAULT));
+		String bind=props.getProperty(BIND_PROPERTY,BIND_PROPERTY_DEFAULT);
+
+		ServerSocket server=null;
+		List<Socket> sockets=new ArrayList<Socket>();
+		List<DataOutputStream> outs=new ArrayList<DataOutputStream>();
+		List<DataInputStream> ins=new ArrayList<DataInputStream>();
+		try
+		{
+			server=new ServerSocket(port,workers,InetAddress.getByName(bind));
+			System.err.println("Waiting for "+workers+" workers on "+bind+":"+port+".");
+			for (int worker=0; worker<workers; worker++)
+			{
+				Socket socket=server.accept();
+				sockets.add(socket);
+				DataOutputStream out=new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+				out.writeLong(MAGIC);
+				writeProperties(out,getWorkerProperties(props,worker,workers));
+				out.flush();
+				outs.add(out);
+				ins.add(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+				System.err.println("Worker "+worker+" connected from "+socket.getRemoteSocketAddress()+".");
+			}
+
+			//wait until every worker has initialized, then start them all at once
+			for (DataInputStream in : ins)
+			{
+				expect(in,READY);
+			}
+			for (DataOutputStream out : outs)
+			{
+				out.writeUTF(START);
+				out.flush();
+			}
+			System.err.println("Started "+workers+" workers.");
+
+			//the percentiles to export are the coordinator's
+			double[] percentiles=OneMeasurementHdrHistogram.parsePercentiles(props.getProperty(OneMeasurementHdrHistogram.PERCENTILES,OneMeasurementHdrHistogram.PERCENTILES_DEFAULT));
+			Map<String,OneMeasurement> measurements=new HashMap<String,OneMeasurement>();
+			long opsDone=0;
+			long runtime=0;
+			for (int worker=0; worker<workers; worker++)
+			{
+				DataInputStream in=ins.get(worker);
+				long workerOps=in.readLong();
+				long workerRuntime=in.readLong();
+				System.err.println("Worker "+worker+" finished "+workerOps+" operations in "+workerRuntime+" ms.");
+				Measurements.merge(measurements,readMeasurements(in,percentiles));
+				opsDone+=workerOps;
+				//the workers ran at the same time, so the run took as long as the slowest of them
+				runtime=Math.max(runtime,workerRuntime);
+			}
+
+			Client.exportMeasurements(props,props.getProperty(Client.EXPORT_FILE_PROPERTY),opsDone,runtime,measurements,null);
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not coordinate the workers, error: "+e.getMessage());
+			e.printStackTrace();
+			System.exit(-1);
+		}
+		finally
+		{
+			for (Socket socket : sockets)
+			{
+				try
+				{
+					socket.close();
+				}
+				catch (IOException e)
+				{
+				}
+			}
+			if (server!=null)
+			{
+				try
+				{
+					server.close();
+				}
+				catch (IOException e)
+				{
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the properties that assign one worker its share of the run.
+	 *
+	 * @param worker the index of the worker, from 0
+	 * @param workers the number of workers
+	 */
+	static Properties getWorkerProperties(Properties props, int worker, int workers)
+	{
+		Properties assigned=new Properties();
+
+		long records;
+		if (props.containsKey(Client.INSERT_COUNT_PROPERTY))
+		{
+			records=Long.parseLong(props.getProperty(Client.INSERT_COUNT_PROPERTY));
+		}
+		else
+		{
+			records=Long.parseLong(props.getProperty(Client.RECORD_COUNT_PROPERTY,"0"));
+		}
+		long insertstart=Long.parseLong(props.getProperty(CoreWorkload.INSERT_START_PROPERTY,CoreWorkload.INSERT_START_PROPERTY_DEFAULT));
+		assigned.setProperty(CoreWorkload.INSERT_START_PROPERTY,Long.toString(insertstart+share(records,worker,workers)));
+		assigned.setProperty(Client.INSERT_COUNT_PROPERTY,Long.toString(share(records,worker+1,workers)-share(records,worker,workers)));
+
+		long opcount=Long.parseLong(props.getProperty(Client.OPERATION_COUNT_PROPERTY,"0"));
+		assigned.setProperty(Client.OPERATION_COUNT_PROPERTY,Long.toString(share(opcount,worker+1,workers)-share(opcount,worker,workers)));
+
+		long target=Long.parseLong(props.getProperty("target","0"));
+		if (target>0)
+		{
+			assigned.setProperty("target",Long.toString(share(target,worker+1,workers)-share(target,worker,workers)));
+		}
+
+		//only histograms of this type can be sent back
+		assigned.setProperty("measurementtype","hdrhistogram");
+
+		//give each worker streams of its own, or they would all generate the same keys
+		if (props.getProperty(Client.SEED_PROPERTY)!=null)
+		{
+			long seed=Long.parseLong(props.getProperty(Client.SEED_PROPERTY));
+			assigned.setProperty(Client.SEED_PROPERTY,Long.toString(SplitMixRandom.mix(seed,worker)));
+		}
+		return assigned;
+	}
+
+	/**
+	 * @return how much of the total the workers before the given one get, so that the shares differ by at most one.
+	 */
+	static long share(long total, int worker, int workers)
+	{
+		return total*worker/workers;
+	}
+
+	/**
+	 * Read a message from the other side, and fail unless it is the expected one.
+	 */
+	static void expect(DataInputStream in, String message) throws IOException
+	{
+		String received=in.readUTF();
+		if (!message.equals(received))
+		{
+			throw new IOException("Expected \""+message+"\" but received \""+received+"\"");
+		}
+	}
+
+	/**
+	 * Write properties as a count followed by pairs of names and values.
+	 */
+	@SuppressWarnings("rawtypes")
+	static void writeProperties(DataOutputStream out, Properties props) throws IOException
+	{
+		List<String> names=new ArrayList<String>();
+		for (Enumeration e=props.propertyNames(); e.hasMoreElements(); )
+		{
+			names.add((String)e.nextElement());
+		}
+		out.writeInt(names.size());
+		for (String name : names)
+		{
+			out.writeUTF(name);
+			out.writeUTF(props.getProperty(name));
+		}
+	}
+
+	/**
+	 * Read properties written by {@link #writeProperties(DataOutputStream, Properties)} into the given ones.
+	 */
+	static void readProperties(DataInputStream in, Properties props) throws IOException
+	{
+		int count=in.readInt();
+		for (int i=0; i<count; i++)
+		{
+			String name=in.readUTF();
+			props.setProperty(name,in.readUTF());
+		}
+	}
+
+	/**
+	 * Write measurements as a count followed by the name and histogram of each.
+	 *
+	 * @throws IOException if one of them is not an hdrhistogram
+	 */
+	static void writeMeasurements(DataOutputStream out, Map<String,OneMeasurement> measurements) throws IOException
+	{
+		out.writeInt(measurements.size());
+		for (Map.Entry<String,OneMeasurement> entry : measurements.entrySet())
+		{
+			if (!(entry.getValue() instanceof OneMeasurementHdrHistogram))
+			{
+				throw new IOException("Can't send "+entry.getKey()+", only hdrhistogram measurements can be sent");
+			}
+			out.writeUTF(entry.getKey());
+			((OneMeasurementHdrHistogram)entry.getValue()).write(out);
+		}
+	}
+
+	/**
+	 * Read measurements written by {@link #writeMeasurements(DataOutputStream, Map)}.
+	 */
+	static Map<String,OneMeasurement> readMeasurements(DataInputStream in, double[] percentiles) throws IOException
+	{
+		Map<String,OneMeasurement> measurements=new HashMap<String,OneMeasurement>();
+		int count=in.readInt();
+		for (int i=0; i<count; i++)
+		{
+			String name=in.readUTF();
+			measurements.put(name,OneMeasurementHdrHistogram.read(name,in,percentiles));
+		}
+		return measurements;
+	}
+}
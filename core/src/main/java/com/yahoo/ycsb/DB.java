@@ -1,6 +1,7 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
@@ -75,6 +76,44 @@ public abstract class DB
 	 */
 	public abstract int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result);
 
+	/**
+	 * Read a record from the database, given its key as characters, such as a reused {@link KeyBuffer}. Bindings
+	 * that can use the key without making a String of it may override this, but must not keep the key after
+	 * returning; by default the key is copied into a String.
+	 *
+	 * @see #read(String, String, Set, HashMap)
+	 */
+	public int read(String table, CharSequence key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		return read(table,key.toString(),fields,result);
+	}
+
+	/**
+	 * Read a number of records from the database at once. Bindings whose database can read many keys in one
+	 * request should override this; by default the records are read one at a time.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param results A list to add a HashMap of field/value pairs to for each record, in the order of the keys
+	 * @return Zero on success, a non-zero error code on error or if any record was "not found".
+	 */
+	public int multiRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+		int res=0;
+		for (String key : keys)
+		{
+			HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+			int keyres=read(table,key,fields,result);
+			if (res==0)
+			{
+				res=keyres;
+			}
+			results.add(result);
+		}
+		return res;
+	}
+
 	/**
 	 * Perform a range scan for a set of records in the database. Each field/value pair from the result will be stored in a HashMap.
 	 *
@@ -98,6 +137,39 @@ public abstract class DB
 	 */
 	public abstract int update(String table, String key, HashMap<String,ByteIterator> values);
 
+	/**
+	 * Update a record in the database, given its key as characters; see {@link #read(String, CharSequence, Set, HashMap)}.
+	 *
+	 * @see #update(String, String, HashMap)
+	 */
+	public int update(String table, CharSequence key, HashMap<String,ByteIterator> values)
+	{
+		return update(table,key.toString(),values);
+	}
+
+	/**
+	 * Update a number of records in the database at once. Bindings whose database can write many keys in one
+	 * request should override this; by default the records are updated one at a time.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to write.
+	 * @param values For each record, a HashMap of field/value pairs to update in the record
+	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int multiUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int res=0;
+		for (int i=0; i<keys.size(); i++)
+		{
+			int keyres=update(table,keys.get(i),values.get(i));
+			if (res==0)
+			{
+				res=keyres;
+			}
+		}
+		return res;
+	}
+
 	/**
 	 * Insert a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
 	 * record key.
@@ -109,6 +181,38 @@ public abstract class DB
 	 */
 	public abstract int insert(String table, String key, HashMap<String,ByteIterator> values);
 
+	/**
+	 * Insert a record in the database, given its key as characters; see {@link #read(String, CharSequence, Set, HashMap)}.
+	 *
+	 * @see #insert(String, String, HashMap)
+	 */
+	public int insert(String table, CharSequence key, HashMap<String,ByteIterator> values)
+	{
+		return insert(table,key.toString(),values);
+	}
+
+	/**
+	 * Insert a batch of records in the database, e.g. while loading it. Bindings whose database has a bulk
+	 * load API should override this to use it; by default the records are inserted one at a time.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to insert, sorted if the workload inserts in key order.
+	 * @param values For each record, a HashMap of field/value pairs to insert in the record
+	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+	 */
+	public int insertBatch(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		for (int i=0; i<keys.size(); i++)
+		{
+			int res=insert(table,keys.get(i),values.get(i));
+			if (res!=0)
+			{
+				return res;
+			}
+		}
+		return 0;
+	}
+
 	/**
 	 * Delete a record from the database. 
 	 *
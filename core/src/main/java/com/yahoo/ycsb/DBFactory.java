@@ -12,24 +12,43 @@ public class DBFactory
       {
 	 ClassLoader classLoader = DBFactory.class.getClassLoader();
 
-	 DB ret=null;
+	 Object ret=null;
 
 	 try 
 	 {
 	    Class dbclass = classLoader.loadClass(dbname);
 	    //System.out.println("dbclass.getName() = " + dbclass.getName());
 	    
-	    ret=(DB)dbclass.newInstance();
+	    ret=dbclass.newInstance();
 	 }
 	 catch (Exception e) 
 	 {  
 	    e.printStackTrace();
 	    return null;
 	 }
-	 
-	 ret.setProperties(properties);
 
-	 return new DBWrapper(ret);
+	 //asynchronous bindings, and blocking ones when asked to, are driven with a window of outstanding requests
+	 AsyncDB asyncdb=null;
+	 if (ret instanceof AsyncDB)
+	 {
+	    asyncdb=(AsyncDB)ret;
+	 }
+	 else if (Boolean.parseBoolean(properties.getProperty(AsyncDB.ASYNC_PROPERTY,AsyncDB.ASYNC_PROPERTY_DEFAULT)))
+	 {
+	    asyncdb=new BlockingAsyncDB((DB)ret);
+	 }
+
+	 if (asyncdb!=null)
+	 {
+	    asyncdb.setProperties(properties);
+	    int outstanding=Integer.parseInt(properties.getProperty(AsyncDB.OUTSTANDING_PROPERTY,AsyncDB.OUTSTANDING_PROPERTY_DEFAULT));
+	    return new AsyncDBWrapper(asyncdb,outstanding);
+	 }
+
+	 DB db=(DB)ret;
+	 db.setProperties(properties);
+
+	 return new DBWrapper(db);
       }
       
 }
@@ -0,0 +1,99 @@
+package com.yahoo.ycsb;
+
+/**
+ * The pending result of an operation issued through an {@link AsyncDB}. The result is the same return
+ * code the blocking {@link DB} methods return: zero on success, non-zero on error.
+ * 
+ * A binding creates a DBFuture when it issues a request and calls complete() from whichever thread
+ * receives the response. A single listener can be attached to be told about the completion.
+ */
+public class DBFuture
+{
+	/**
+	 * Callback for the completion of an operation. It is called on the thread that completed the
+	 * operation, or on the thread attaching it if the operation had already completed, so it should be cheap.
+	 */
+	public interface Listener
+	{
+		void completed(int result);
+	}
+
+	private int _result;
+	private boolean _done;
+	private Listener _listener;
+
+	/**
+	 * Return a future that has already completed with the given result.
+	 */
+	public static DBFuture completed(int result)
+	{
+		DBFuture future=new DBFuture();
+		future.complete(result);
+		return future;
+	}
+
+	/**
+	 * Complete the operation with the given result, waking up any waiters and calling the listener.
+	 */
+	public void complete(int result)
+	{
+		Listener listener;
+		synchronized (this)
+		{
+			if (_done)
+			{
+				throw new IllegalStateException("Operation already completed");
+			}
+			_result=result;
+			_done=true;
+			listener=_listener;
+			notifyAll();
+		}
+		if (listener!=null)
+		{
+			listener.completed(result);
+		}
+	}
+
+	public synchronized boolean isDone()
+	{
+		return _done;
+	}
+
+	/**
+	 * Wait for the operation to complete.
+	 * 
+	 * @return Zero on success, a non-zero error code on error.
+	 */
+	public synchronized int get() throws InterruptedException
+	{
+		while (!_done)
+		{
+			wait();
+		}
+		return _result;
+	}
+
+	/**
+	 * Attach the listener to be called when the operation completes. If it has already completed, the
+	 * listener is called immediately. Only one listener can be attached.
+	 */
+	public void whenComplete(Listener listener)
+	{
+		int result;
+		synchronized (this)
+		{
+			if (!_done)
+			{
+				if (_listener!=null)
+				{
+					throw new IllegalStateException("A listener is already attached");
+				}
+				_listener=listener;
+				return;
+			}
+			result=_result;
+		}
+		listener.completed(result);
+	}
+}
@@ -1,6 +1,7 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
@@ -55,7 +56,31 @@ public class DBWrapper extends DB
     long st=System.nanoTime();
 		_db.cleanup();
     long en=System.nanoTime();
-    _measurements.measure("CLEANUP", (int)((en-st)/1000));
+    _measurements.measureNanos("CLEANUP", en-st);
+	}
+
+	/**
+	 * Record the latency of an operation from the time it was sent and, when the client runs open loop,
+	 * also from the time it was scheduled to start.
+	 */
+	static void measure(Measurements measurements, String op, int res, long intendedStartTimeNanos, long startTimeNanos, long endTimeNanos)
+	{
+		measurements.measureNanos(op,endTimeNanos-startTimeNanos);
+		if (intendedStartTimeNanos!=0)
+		{
+			measurements.measureIntendedNanos(op,endTimeNanos-intendedStartTimeNanos);
+		}
+		measurements.reportReturnCode(op,res);
+	}
+
+	/**
+	 * Measure an operation on many keys at once as a whole, and count its keys, so its latency amortized over them
+	 * is exported along with it.
+	 */
+	static void measureMulti(Measurements measurements, String op, int res, int keys, long intendedStartTimeNanos, long startTimeNanos, long endTimeNanos)
+	{
+		measure(measurements,op,res,intendedStartTimeNanos,startTimeNanos,endTimeNanos);
+		measurements.reportKeys(op,keys);
 	}
 
 	/**
@@ -69,11 +94,43 @@ public class DBWrapper extends DB
 	 */
 	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
 	{
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		int res=_db.read(table,key,fields,result);
+		long en=System.nanoTime();
+		measure(_measurements,"READ",res,ist,st,en);
+		return res;
+	}
+
+	/**
+	 * Read a record given its key as characters, passed on to the DB as they are.
+	 */
+	public int read(String table, CharSequence key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		long ist=_measurements.getIntendedStartTimeNs();
 		long st=System.nanoTime();
 		int res=_db.read(table,key,fields,result);
 		long en=System.nanoTime();
-		_measurements.measure("READ",(int)((en-st)/1000));
-		_measurements.reportReturnCode("READ",res);
+		measure(_measurements,"READ",res,ist,st,en);
+		return res;
+	}
+
+	/**
+	 * Read a number of records from the database at once, measured as one "MULTI-READ" operation.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param results A list to add a HashMap of field/value pairs to for each record
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int multiRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		int res=_db.multiRead(table,keys,fields,results);
+		long en=System.nanoTime();
+		measureMulti(_measurements,"MULTI-READ",res,keys.size(),ist,st,en);
 		return res;
 	}
 
@@ -89,11 +146,11 @@ public class DBWrapper extends DB
 	 */
 	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
 	{
+		long ist=_measurements.getIntendedStartTimeNs();
 		long st=System.nanoTime();
 		int res=_db.scan(table,startkey,recordcount,fields,result);
 		long en=System.nanoTime();
-		_measurements.measure("SCAN",(int)((en-st)/1000));
-		_measurements.reportReturnCode("SCAN",res);
+		measure(_measurements,"SCAN",res,ist,st,en);
 		return res;
 	}
 	
@@ -108,11 +165,42 @@ public class DBWrapper extends DB
 	 */
 	public int update(String table, String key, HashMap<String,ByteIterator> values)
 	{
+		long ist=_measurements.getIntendedStartTimeNs();
 		long st=System.nanoTime();
 		int res=_db.update(table,key,values);
 		long en=System.nanoTime();
-		_measurements.measure("UPDATE",(int)((en-st)/1000));
-		_measurements.reportReturnCode("UPDATE",res);
+		measure(_measurements,"UPDATE",res,ist,st,en);
+		return res;
+	}
+
+	/**
+	 * Update a record given its key as characters, passed on to the DB as they are.
+	 */
+	public int update(String table, CharSequence key, HashMap<String,ByteIterator> values)
+	{
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		int res=_db.update(table,key,values);
+		long en=System.nanoTime();
+		measure(_measurements,"UPDATE",res,ist,st,en);
+		return res;
+	}
+
+	/**
+	 * Update a number of records in the database at once, measured as one "MULTI-UPDATE" operation.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to write.
+	 * @param values For each record, a HashMap of field/value pairs to update in the record
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int multiUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		int res=_db.multiUpdate(table,keys,values);
+		long en=System.nanoTime();
+		measureMulti(_measurements,"MULTI-UPDATE",res,keys.size(),ist,st,en);
 		return res;
 	}
 
@@ -127,11 +215,42 @@ public class DBWrapper extends DB
 	 */
 	public int insert(String table, String key, HashMap<String,ByteIterator> values)
 	{
+		long ist=_measurements.getIntendedStartTimeNs();
 		long st=System.nanoTime();
 		int res=_db.insert(table,key,values);
 		long en=System.nanoTime();
-		_measurements.measure("INSERT",(int)((en-st)/1000));
-		_measurements.reportReturnCode("INSERT",res);
+		measure(_measurements,"INSERT",res,ist,st,en);
+		return res;
+	}
+
+	/**
+	 * Insert a record given its key as characters, passed on to the DB as they are.
+	 */
+	public int insert(String table, CharSequence key, HashMap<String,ByteIterator> values)
+	{
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		int res=_db.insert(table,key,values);
+		long en=System.nanoTime();
+		measure(_measurements,"INSERT",res,ist,st,en);
+		return res;
+	}
+
+	/**
+	 * Insert a batch of records in the database. The whole batch is measured as one "INSERT-BATCH" operation.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to insert.
+	 * @param values For each record, a HashMap of field/value pairs to insert in the record
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int insertBatch(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		long ist=_measurements.getIntendedStartTimeNs();
+		long st=System.nanoTime();
+		int res=_db.insertBatch(table,keys,values);
+		long en=System.nanoTime();
+		measure(_measurements,"INSERT-BATCH",res,ist,st,en);
 		return res;
 	}
 
@@ -144,11 +263,11 @@ public class DBWrapper extends DB
 	 */
 	public int delete(String table, String key)
 	{
+		long ist=_measurements.getIntendedStartTimeNs();
 		long st=System.nanoTime();
 		int res=_db.delete(table,key);
 		long en=System.nanoTime();
-		_measurements.measure("DELETE",(int)((en-st)/1000));
-		_measurements.reportReturnCode("DELETE",res);
+		measure(_measurements,"DELETE",res,ist,st,en);
 		return res;
 	}
 }
@@ -0,0 +1,130 @@
+package com.yahoo.ycsb;
+
+/**
+ * A record key built in place in a reusable buffer, "user" followed by the key number in base 36, so building
+ * the key of an operation allocates nothing. Each client thread has one, see {@link #forThread()}, which is
+ * reused for every operation the thread issues.
+ *
+ * Bindings that override the CharSequence key methods of {@link DB} receive keys in this form, and can read
+ * the characters, the ASCII bytes or the key number without making a String. They must not keep a reference
+ * to the buffer after the call returns, as it is overwritten by the next operation; {@link #toString()} gives
+ * a String copy of the key.
+ */
+public final class KeyBuffer implements CharSequence
+{
+	public static final String PREFIX="user";
+
+	//the prefix, a sign and at most 13 base 36 digits
+	final char[] _chars=new char[PREFIX.length()+14];
+	int _length;
+	long _keynumber;
+
+	//the key as a String, made the first time it is asked for
+	String _string;
+
+	private static final ThreadLocal<KeyBuffer> buffers=new ThreadLocal<KeyBuffer>()
+	{
+		@Override
+		protected KeyBuffer initialValue()
+		{
+			return new KeyBuffer();
+		}
+	};
+
+	private static final char[] DIGITS="0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+	public KeyBuffer()
+	{
+		PREFIX.getChars(0,PREFIX.length(),_chars,0);
+	}
+
+	/**
+	 * Return the key buffer of the calling thread.
+	 */
+	public static KeyBuffer forThread()
+	{
+		return buffers.get();
+	}
+
+	/**
+	 * Build the key for a key number, as "user" + Long.toString(keynumber, Character.MAX_RADIX) would.
+	 *
+	 * @return this buffer
+	 */
+	public KeyBuffer set(long keynumber)
+	{
+		_keynumber=keynumber;
+		_string=null;
+
+		//work with the number negated, so Long.MIN_VALUE needs no special case
+		long n=keynumber<0 ? keynumber : -keynumber;
+		int digits=1;
+		for (long m=n/Character.MAX_RADIX; m!=0; m/=Character.MAX_RADIX)
+		{
+			digits++;
+		}
+		int pos=PREFIX.length();
+		if (keynumber<0)
+		{
+			_chars[pos++]='-';
+		}
+		_length=pos+digits;
+		for (int i=_length-1; i>=pos; i--)
+		{
+			_chars[i]=DIGITS[(int)-(n%Character.MAX_RADIX)];
+			n/=Character.MAX_RADIX;
+		}
+		return this;
+	}
+
+	/**
+	 * Return the number the key was built from, for bindings that store keys as longs.
+	 */
+	public long getKeyNumber()
+	{
+		return _keynumber;
+	}
+
+	/**
+	 * Write the key as ASCII bytes.
+	 *
+	 * @return the number of bytes written
+	 */
+	public int getBytes(byte[] buffer, int offset)
+	{
+		for (int i=0; i<_length; i++)
+		{
+			buffer[offset+i]=(byte)_chars[i];
+		}
+		return _length;
+	}
+
+	public int length()
+	{
+		return _length;
+	}
+
+	public char charAt(int index)
+	{
+		if (index<0 || index>=_length)
+		{
+			throw new IndexOutOfBoundsException("index "+index+", length "+_length);
+		}
+		return _chars[index];
+	}
+
+	public CharSequence subSequence(int start, int end)
+	{
+		return toString().substring(start,end);
+	}
+
+	@Override
+	public String toString()
+	{
+		if (_string==null)
+		{
+			_string=new String(_chars,0,_length);
+		}
+		return _string;
+	}
+}
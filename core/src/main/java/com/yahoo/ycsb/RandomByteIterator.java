@@ -1,9 +1,18 @@
 package com.yahoo.ycsb;
 
+import java.nio.ByteBuffer;
+import java.util.Random;
+
 /**
  *  A ByteIterator that generates a random sequence of bytes.
+ *
+ *  The bytes are printable ASCII, from ' ' to '?', made eight at a time from one random long: its low five bits
+ *  in each byte, offset by ' '.
  */
 public class RandomByteIterator extends ByteIterator {
+  private static final long LOW_BITS = 0x1f1f1f1f1f1f1f1fL;
+  private static final long SPACES = 0x2020202020202020L;
+
   private long len;
   private long off;
   private int bufOff;
@@ -14,21 +23,55 @@ public class RandomByteIterator extends ByteIterator {
     return (off + bufOff) < len;
   }
 
-  private void fillBytesImpl(byte[] buffer, int base) {
-    int bytes = Utils.random().nextInt();
-    try {
-      buffer[base+0] = (byte)(((bytes) & 31) + ' ');
-      buffer[base+1] = (byte)(((bytes >> 5) & 31) + ' ');
-      buffer[base+2] = (byte)(((bytes >> 10) & 31) + ' ');
-      buffer[base+3] = (byte)(((bytes >> 15) & 31) + ' ');
-      buffer[base+4] = (byte)(((bytes >> 20) & 31) + ' ');
-      buffer[base+5] = (byte)(((bytes >> 25) & 31) + ' ');
-    } catch (ArrayIndexOutOfBoundsException e) { /* ignore it */ }
+  /**
+   * Return eight random printable bytes packed into a long.
+   */
+  static long randomLong(Random random) {
+    return (random.nextLong() & LOW_BITS) + SPACES;
+  }
+
+  /**
+   * Fill part of a buffer with the same kind of random printable bytes this iterator returns.
+   */
+  public static void randomBytes(byte[] buffer, int off, int len) {
+    Random random = Utils.random();
+    int end = off + len;
+    for (; off + 8 <= end; off += 8) {
+      long bytes = randomLong(random);
+      buffer[off] = (byte)bytes;
+      buffer[off+1] = (byte)(bytes >> 8);
+      buffer[off+2] = (byte)(bytes >> 16);
+      buffer[off+3] = (byte)(bytes >> 24);
+      buffer[off+4] = (byte)(bytes >> 32);
+      buffer[off+5] = (byte)(bytes >> 40);
+      buffer[off+6] = (byte)(bytes >> 48);
+      buffer[off+7] = (byte)(bytes >> 56);
+    }
+    if (off < end) {
+      for (long bytes = randomLong(random); off < end; off++, bytes >>= 8) {
+        buffer[off] = (byte)bytes;
+      }
+    }
+  }
+
+  /**
+   * Fill the remaining bytes of a buffer with random printable bytes, leaving its position at its limit.
+   */
+  public static void randomBytes(ByteBuffer buffer) {
+    Random random = Utils.random();
+    while (buffer.remaining() >= 8) {
+      buffer.putLong(randomLong(random));
+    }
+    if (buffer.hasRemaining()) {
+      for (long bytes = randomLong(random); buffer.hasRemaining(); bytes >>= 8) {
+        buffer.put((byte)bytes);
+      }
+    }
   }
 
   private void fillBytes() {
     if(bufOff ==  buf.length) {
-      fillBytesImpl(buf, 0);
+      randomBytes(buf, 0, buf.length);
       bufOff = 0;
       off += buf.length;
     }
@@ -36,7 +79,7 @@ public class RandomByteIterator extends ByteIterator {
 
   public RandomByteIterator(long len) {
     this.len = len;
-    this.buf = new byte[6];
+    this.buf = new byte[8];
     this.bufOff = buf.length;
     fillBytes();
     this.off = 0;
@@ -51,15 +94,12 @@ public class RandomByteIterator extends ByteIterator {
   @Override
   public int nextBuf(byte[] buffer, int bufferOffset) {
     int ret;
-    if(len - off < buffer.length - bufferOffset) {
-      ret = (int)(len - off);
+    if(bytesLeft() < buffer.length - bufferOffset) {
+      ret = (int)bytesLeft();
     } else {
       ret = buffer.length - bufferOffset;
     }
-    int i;
-    for(i = 0; i < ret; i+=6) {
-      fillBytesImpl(buffer, i + bufferOffset);
-    }
+    randomBytes(buffer, bufferOffset, ret);
     off+=ret;
     return ret + bufferOffset;
   }
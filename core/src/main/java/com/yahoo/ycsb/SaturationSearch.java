@@ -0,0 +1,279 @@
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Vector;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Searches for the highest target throughput at which the database still meets a latency bound.
+ *
+ * The transaction phase is run for a short step at a time, first doubling the target until a step
+ * misses the bound, then bisecting between the last target that met it and the first that did not.
+ * A step meets the bound if the chosen latency percentile is within the limit and the achieved
+ * throughput is close enough to the target; a database that can't keep up with the target is
+ * saturated, whatever its latency. All steps share the workload and DB instances.
+ *
+ * Every step is reported as a point of the throughput/latency curve, followed by the highest target
+ * that met the bound. Unless run with "openloop=false", the latencies measured from the intended start
+ * time are used, so a client that falls behind near saturation can't hide the time operations waited.
+ */
+public class SaturationSearch
+{
+	/**
+	 * Whether to search for the saturation point instead of running the transaction phase once.
+	 */
+	public static final String SEARCH_PROPERTY="search";
+
+	public static final String SEARCH_PROPERTY_DEFAULT="false";
+
+	/**
+	 * The target throughput of the first step, in operations per second.
+	 */
+	public static final String START_TARGET_PROPERTY="search.start";
+
+	public static final String START_TARGET_PROPERTY_DEFAULT="1000";
+
+	/**
+	 * The duration of each step, in seconds.
+	 */
+	public static final String STEP_DURATION_PROPERTY="search.stepduration";
+
+	public static final String STEP_DURATION_PROPERTY_DEFAULT="10";
+
+	/**
+	 * The maximum number of steps to run.
+	 */
+	public static final String MAX_STEPS_PROPERTY="search.maxsteps";
+
+	public static final String MAX_STEPS_PROPERTY_DEFAULT="20";
+
+	/**
+	 * The latency percentile that must be within the limit, e.g. 99 or 99.9.
+	 */
+	public static final String PERCENTILE_PROPERTY="search.percentile";
+
+	public static final String PERCENTILE_PROPERTY_DEFAULT="99";
+
+	/**
+	 * The latency limit, in microseconds.
+	 */
+	public static final String LATENCY_PROPERTY="search.latency";
+
+	public static final String LATENCY_PROPERTY_DEFAULT="10000";
+
+	/**
+	 * The operation whose latency must be within the limit, e.g. "READ". By default every operation must be.
+	 */
+	public static final String OPERATION_PROPERTY="search.operation";
+
+	/**
+	 * The fraction of the target throughput a step must achieve.
+	 */
+	public static final String MIN_THROUGHPUT_PROPERTY="search.minthroughput";
+
+	public static final String MIN_THROUGHPUT_PROPERTY_DEFAULT="0.95";
+
+	/**
+	 * Bisection stops once the targets that did and did not meet the bound are within this fraction of each other.
+	 */
+	public static final String PRECISION_PROPERTY="search.precision";
+
+	public static final String PRECISION_PROPERTY_DEFAULT="0.05";
+
+	/**
+	 * One step of the search.
+	 */
+	static class Step
+	{
+		int target;
+		double throughput;
+		double latency;
+		boolean passed;
+	}
+
+	Properties _props;
+	Workload _workload;
+	String _dbname;
+	int _threadcount;
+	boolean _status;
+	String _label;
+
+	int _starttarget;
+	int _stepduration;
+	int _maxsteps;
+	double _percentile;
+	double _latency;
+	String _operation;
+	double _minthroughput;
+	double _precision;
+	boolean _openloop;
+
+	List<Step> _steps=new ArrayList<Step>();
+
+	public SaturationSearch(Properties props, Workload workload, String dbname, int threadcount, boolean status, String label)
+	{
+		_props=props;
+		_workload=workload;
+		_dbname=dbname;
+		_threadcount=threadcount;
+		_status=status;
+		_label=label;
+
+		_starttarget=Integer.parseInt(props.getProperty(START_TARGET_PROPERTY,START_TARGET_PROPERTY_DEFAULT));
+		_stepduration=Integer.parseInt(props.getProperty(STEP_DURATION_PROPERTY,STEP_DURATION_PROPERTY_DEFAULT));
+		_maxsteps=Integer.parseInt(props.getProperty(MAX_STEPS_PROPERTY,MAX_STEPS_PROPERTY_DEFAULT));
+		_percentile=Double.parseDouble(props.getProperty(PERCENTILE_PROPERTY,PERCENTILE_PROPERTY_DEFAULT));
+		_latency=Double.parseDouble(props.getProperty(LATENCY_PROPERTY,LATENCY_PROPERTY_DEFAULT));
+		_operation=props.getProperty(OPERATION_PROPERTY);
+		_minthroughput=Double.parseDouble(props.getProperty(MIN_THROUGHPUT_PROPERTY,MIN_THROUGHPUT_PROPERTY_DEFAULT));
+		_precision=Double.parseDouble(props.getProperty(PRECISION_PROPERTY,PRECISION_PROPERTY_DEFAULT));
+		_openloop=Boolean.parseBoolean(props.getProperty(Client.OPEN_LOOP_PROPERTY,Client.OPEN_LOOP_PROPERTY_DEFAULT));
+	}
+
+	/**
+	 * Run the search and export the curve and the saturation point.
+	 */
+	public void run()
+	{
+		Vector<DB> dbs=Client.newDBs(_dbname,_props,_threadcount);
+		Client.initDBs(dbs);
+
+		//ramp up until the bound is missed
+		Step best=null;
+		int failed=-1;
+		int target=_starttarget;
+		while (failed<0 && _steps.size()<_maxsteps)
+		{
+			Step step=runStep(dbs,target);
+			if (step.passed)
+			{
+				best=step;
+				target*=2;
+			}
+			else
+			{
+				failed=target;
+			}
+		}
+
+		//then bisect between the best target that met it and the first that didn't
+		while (failed>0 && _steps.size()<_maxsteps)
+		{
+			int passed=best==null ? 0 : best.target;
+			target=(passed+failed)/2;
+			if (target<=passed || failed-passed<=_precision*passed)
+			{
+				break;
+			}
+			Step step=runStep(dbs,target);
+			if (step.passed)
+			{
+				best=step;
+			}
+			else
+			{
+				failed=target;
+			}
+		}
+
+		Client.cleanupDBs(dbs);
+
+		try
+		{
+			_workload.cleanup();
+		}
+		catch (WorkloadException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			System.exit(0);
+		}
+
+		try
+		{
+			export(best);
+		}
+		catch (IOException e)
+		{
+			System.err.println("Could not export measurements, error: " + e.getMessage());
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+
+	/**
+	 * Run the transaction phase for one step at the given target throughput.
+	 */
+	Step runStep(Vector<DB> dbs, int target)
+	{
+		Properties stepprops=new Properties();
+		stepprops.putAll(_props);
+		stepprops.setProperty("target",Integer.toString(target));
+		stepprops.setProperty(Client.MAX_EXECUTION_TIME,Integer.toString(_stepduration));
+		stepprops.setProperty(Client.OPERATION_COUNT_PROPERTY,"0");
+
+		System.err.println("Search step "+(_steps.size()+1)+": target "+target+" ops/sec.");
+		_workload.clearStopRequest();
+		Measurements measurements=Measurements.getMeasurements();
+		measurements.reset();
+
+		Client.PhaseResult result=Client.runPhase(stepprops,_workload,dbs,true,false,_status,_label+"search ");
+
+		Step step=new Step();
+		step.target=target;
+		step.throughput=result.runtime>0 ? 1000.0*result.opsDone/result.runtime : 0;
+		step.latency=Measurements.getPercentileLatency(measurements.snapshot(),_percentile,_operation,_openloop);
+		step.passed=step.latency>=0 && step.latency<=_latency && step.throughput>=_minthroughput*target;
+		_steps.add(step);
+
+		System.err.println("Search step "+_steps.size()+": throughput "+(long)step.throughput+" ops/sec, "
+				+new DecimalFormat("#.###").format(_percentile)+"th percentile latency "+step.latency+" us, "+(step.passed ? "passed." : "failed."));
+		return step;
+	}
+
+	void export(Step best) throws IOException
+	{
+		MeasurementsExporter exporter=null;
+		try
+		{
+			exporter=Client.newExporter(_props,_props.getProperty(Client.EXPORT_FILE_PROPERTY));
+
+			String latencyname=new DecimalFormat("#.###").format(_percentile)+"thPercentileLatency(us)";
+			for (int i=0; i<_steps.size(); i++)
+			{
+				Step step=_steps.get(i);
+				String metric="SEARCH-STEP-"+(i+1);
+				exporter.write(metric,"Target(ops/sec)",step.target);
+				exporter.write(metric,"Throughput(ops/sec)",step.throughput);
+				exporter.write(metric,latencyname,step.latency);
+				exporter.write(metric,"Passed",step.passed ? 1 : 0);
+			}
+
+			exporter.write("SEARCH","LatencyLimit(us)",_latency);
+			if (best!=null)
+			{
+				exporter.write("SEARCH","MaxTarget(ops/sec)",best.target);
+				exporter.write("SEARCH","Throughput(ops/sec)",best.throughput);
+				exporter.write("SEARCH",latencyname,best.latency);
+			}
+			else
+			{
+				//not even the first target met the bound
+				exporter.write("SEARCH","MaxTarget(ops/sec)",0);
+			}
+		}
+		finally
+		{
+			if (exporter!=null)
+			{
+				exporter.close();
+			}
+		}
+	}
+}
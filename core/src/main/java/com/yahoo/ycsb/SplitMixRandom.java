@@ -0,0 +1,72 @@
+package com.yahoo.ycsb;
+
+import java.util.Random;
+
+/**
+ * A fast random number generator for the use of a single thread, based on the SplitMix64 algorithm. Unlike
+ * java.util.Random, which updates its seed with a compare-and-set on every call, the state is a plain long, and
+ * the output is of much better quality.
+ *
+ * Generators for any number of independent streams can be derived from one seed with {@link #mix(long, long)},
+ * so a run can be repeated exactly by giving it the same seed.
+ */
+public class SplitMixRandom extends Random
+{
+	private static final long serialVersionUID = 1L;
+
+	static final long GOLDEN_GAMMA=0x9e3779b97f4a7c15L;
+
+	long _state;
+
+	public SplitMixRandom(long seed)
+	{
+		super(0);
+		_state=seed;
+	}
+
+	/**
+	 * Derive the seed of one stream of a generator from the seed of the generator.
+	 */
+	public static long mix(long seed, long stream)
+	{
+		return mix64(seed+mix64((stream+1)*GOLDEN_GAMMA));
+	}
+
+	static long mix64(long z)
+	{
+		z=(z^(z>>>30))*0xbf58476d1ce4e5b9L;
+		z=(z^(z>>>27))*0x94d049bb133111ebL;
+		return z^(z>>>31);
+	}
+
+	@Override
+	public void setSeed(long seed)
+	{
+		_state=seed;
+	}
+
+	@Override
+	protected int next(int bits)
+	{
+		return (int)(nextLong()>>>(64-bits));
+	}
+
+	@Override
+	public long nextLong()
+	{
+		_state+=GOLDEN_GAMMA;
+		return mix64(_state);
+	}
+
+	@Override
+	public int nextInt()
+	{
+		return (int)(nextLong()>>>32);
+	}
+
+	@Override
+	public double nextDouble()
+	{
+		return (nextLong()>>>11)*0x1.0p-53;
+	}
+}
@@ -0,0 +1,100 @@
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.pacing.LoadProfile;
+
+/**
+ * Records the throughput achieved in each interval of a run that follows a load profile, next to the target rate
+ * of the profile, to show how the database copes with bursts and recovers from them.
+ */
+class ThroughputRecorder extends Thread
+{
+	Vector<Thread> _threads;
+	LoadProfile _profile;
+	long _interval;
+
+	//the end of each interval in milliseconds since the start, the target rate halfway through it and the achieved rate over it
+	List<Long> _times=new ArrayList<Long>();
+	List<Double> _targets=new ArrayList<Double>();
+	List<Double> _throughputs=new ArrayList<Double>();
+
+	/**
+	 * @param threads the client threads
+	 * @param profile the load profile, already started
+	 * @param interval the interval in milliseconds
+	 */
+	public ThroughputRecorder(Vector<Thread> threads, LoadProfile profile, long interval)
+	{
+		_threads=threads;
+		_profile=profile;
+		_interval=interval;
+		setDaemon(true);
+	}
+
+	public void run()
+	{
+		long st=System.nanoTime();
+		long last=st;
+		long lastops=0;
+		boolean alldone;
+		boolean interrupted=false;
+		do
+		{
+			try
+			{
+				sleep(_interval);
+			}
+			catch (InterruptedException e)
+			{
+				//the phase is over, record the last partial interval
+				interrupted=true;
+			}
+
+			alldone=true;
+			long ops=0;
+			for (Thread t : _threads)
+			{
+				ClientThread ct=(ClientThread)t;
+				if (!ct.isFinished())
+				{
+					alldone=false;
+				}
+				ops+=ct.getOpsDone();
+			}
+
+			long now=System.nanoTime();
+			if (now>last)
+			{
+				synchronized (this)
+				{
+					_times.add((now-st)/1000000);
+					_targets.add(_profile.getRate(last+(now-last)/2));
+					_throughputs.add(1e9*(ops-lastops)/(now-last));
+				}
+			}
+			last=now;
+			lastops=ops;
+		}
+		while (!alldone && !interrupted);
+	}
+
+	/**
+	 * Export the target and achieved throughput of each interval.
+	 */
+	public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException
+	{
+		for (int i=0; i<_times.size(); i++)
+		{
+			exporter.write("TARGET-THROUGHPUT",Long.toString(_times.get(i)),_targets.get(i));
+		}
+		for (int i=0; i<_times.size(); i++)
+		{
+			exporter.write("THROUGHPUT",Long.toString(_times.get(i)),_throughputs.get(i));
+		}
+	}
+}
@@ -1,23 +1,73 @@
 package com.yahoo.ycsb;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Utility functions.
  */
 public class Utils
 {
-  private static final Random rand = new Random();
+  /**
+   * The seed all random streams are derived from. Client threads use their thread id as their stream, other
+   * threads get streams from {@link #UNASSIGNED_STREAMS} on, in the order they first ask for a generator.
+   */
+  private static volatile long seed = new Random().nextLong();
+
+  public static final long UNASSIGNED_STREAMS = 1L << 32;
+  private static final AtomicLong unassigned = new AtomicLong(UNASSIGNED_STREAMS);
   private static final ThreadLocal<Random> rng = new ThreadLocal<Random>();
 
+  /**
+   * Make every random stream of this run derive from the given seed, so that the run can be repeated
+   * exactly. Must be called before any generator is created.
+   */
+  public static void setSeed(long newseed) {
+    seed = newseed;
+  }
+
+  /**
+   * Return a new generator for the given stream of this run's seed.
+   */
+  public static Random newRandom(long stream) {
+    return new SplitMixRandom(SplitMixRandom.mix(seed, stream));
+  }
+
+  /**
+   * Make the calling thread use the given generator from now on, e.g. because it now works for another client.
+   */
+  public static void setRandom(Random random) {
+    rng.set(random);
+  }
+
+  /**
+   * Return the generator of the calling thread. It is not thread safe, so must not be handed to other threads.
+   */
   public static Random random() {
     Random ret = rng.get();
     if(ret == null) {
-      ret = new Random(rand.nextLong());
+      ret = newRandom(unassigned.getAndIncrement());
       rng.set(ret);
     }
     return ret;
   }
+
+  /**
+   * Return a uniformly distributed long between 0 (inclusive) and bound (exclusive), from the calling thread's generator.
+   */
+  public static long nextLong(long bound) {
+    Random random = random();
+    long r = random.nextLong();
+    long m = bound - 1;
+    if ((bound & m) == 0) {
+      return r & m;
+    }
+    //reject the top values that would make some results more likely than others
+    for (long u = r >>> 1; u + m - (r = u % bound) < 0; u = random.nextLong() >>> 1) {
+    }
+    return r;
+  }
+
       /**
        * Generate a random ASCII string of a given length.
        */
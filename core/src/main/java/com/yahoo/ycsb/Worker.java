@@ -0,0 +1,82 @@
+package com.yahoo.ycsb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.OneMeasurement;
+
+/**
+ * The connection of a client run as a worker to its {@link Coordinator}.
+ */
+public class Worker
+{
+	/**
+	 * The host:port of the coordinator to run as a worker of.
+	 */
+	public static final String COORDINATOR_PROPERTY="coordinator";
+
+	Socket _socket;
+	DataOutputStream _out;
+	DataInputStream _in;
+
+	/**
+	 * Connect to the coordinator and apply the share of the run it assigns this worker to the properties.
+	 */
+	public Worker(Properties props) throws IOException
+	{
+		String coordinator=props.getProperty(COORDINATOR_PROPERTY);
+		int colon=coordinator.lastIndexOf(':');
+		String host=colon<0 ? coordinator : coordinator.substring(0,colon);
+		int port=Integer.parseInt(colon<0 ? Coordinator.PORT_PROPERTY_DEFAULT : coordinator.substring(colon+1));
+
+		System.err.println("Connecting to coordinator "+host+":"+port+".");
+		_socket=new Socket(host,port);
+		_out=new DataOutputStream(new BufferedOutputStream(_socket.getOutputStream()));
+		_in=new DataInputStream(new BufferedInputStream(_socket.getInputStream()));
+		if (_in.readLong()!=Coordinator.MAGIC)
+		{
+			_socket.close();
+			throw new IOException(host+":"+port+" is not a coordinator of this version");
+		}
+		Properties assigned=new Properties();
+		Coordinator.readProperties(_in,assigned);
+		props.putAll(assigned);
+		System.err.println("Assigned "+assigned+" by the coordinator.");
+	}
+
+	/**
+	 * Tell the coordinator this worker is ready, and wait until it starts all the workers.
+	 */
+	public void awaitStart() throws IOException
+	{
+		_out.writeUTF(Coordinator.READY);
+		_out.flush();
+		Coordinator.expect(_in,Coordinator.START);
+	}
+
+	/**
+	 * Send the results of this worker to the coordinator and disconnect.
+	 *
+	 * @throws IOException if the measurements are not hdrhistograms, or could not be sent
+	 */
+	public void sendResult(long opsDone, long runtime, Map<String,OneMeasurement> measurements) throws IOException
+	{
+		try
+		{
+			_out.writeLong(opsDone);
+			_out.writeLong(runtime);
+			Coordinator.writeMeasurements(_out,measurements);
+			_out.flush();
+		}
+		finally
+		{
+			_socket.close();
+		}
+	}
+}
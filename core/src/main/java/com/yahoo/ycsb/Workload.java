@@ -50,6 +50,15 @@ public abstract class Workload
 	 return null;
       }
       
+      /**
+       * Cleanup the state of a client thread returned by initThread(). Called once for each client thread, after its
+       * last operation, so workloads can let go of whatever they keep for threads that are done, e.g. when threads
+       * come and go between the phases of a run.
+       */
+      public void cleanupThread(Object threadstate) throws WorkloadException
+      {
+      }
+
       /**
        * Cleanup the scenario. Called once, in the main client thread, after all operations have completed.
        */
@@ -65,6 +74,23 @@ public abstract class Workload
        * synchronized, since each thread has its own threadstate instance.
        */
       public abstract boolean doInsert(DB db, Object threadstate);
+
+      /**
+       * Do up to count insert operations at once, when the load phase runs with a "batchsize". Workloads can
+       * override this to hand the records to DB.insertBatch() together; by default it calls doInsert() count times.
+       * The same rules as for doInsert() apply.
+       *
+       * @return the number of records inserted. Return 0 if the workload is done for this thread, or the inserts failed, and Client will terminate the thread.
+       */
+      public int doInsertBatch(DB db, Object threadstate, int count)
+      {
+	 int done=0;
+	 while (done<count && doInsert(db,threadstate))
+	 {
+	    done++;
+	 }
+	 return done;
+      }
       
       /**
        * Do one transaction operation. Because it will be called concurrently from multiple client threads, this 
@@ -84,6 +110,13 @@ public abstract class Workload
         stopRequested.set(true);
       }
       
+      /**
+       * Clear a previous stop request, so the workload can be run again, e.g. in the next phase of a run.
+       */
+      public void clearStopRequest() {
+        stopRequested.set(false);
+      }
+      
       /**
        * Check the status of the stop request flag.
        * @return true if stop was requested, false otherwise.
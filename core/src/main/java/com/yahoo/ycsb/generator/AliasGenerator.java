@@ -0,0 +1,108 @@
+package com.yahoo.ycsb.generator;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Chooses an index into a set of weights, with probability in proportion to its weight, in constant time using
+ * Walker's alias method (as set up by Vose). Each of the n indexes owns a column of height 1/n, split between the
+ * index itself and one alias; a choice takes a single random double, whose integer part (times n) picks the column
+ * and whose fraction picks between the two.
+ */
+public class AliasGenerator extends IntegerGenerator
+{
+	//the chance of choosing each column's own index rather than its alias
+	final double[] _probability;
+	final int[] _alias;
+	final double _mean;
+
+	/**
+	 * @param weights the weights of the indexes, none negative and at least one positive
+	 */
+	public AliasGenerator(double[] weights)
+	{
+		int n=weights.length;
+		double sum=0;
+		double mean=0;
+		for (int i=0; i<n; i++)
+		{
+			if (!(weights[i]>=0))
+			{
+				throw new IllegalArgumentException("Weight "+i+" is "+weights[i]);
+			}
+			sum+=weights[i];
+			mean+=i*weights[i];
+		}
+		if (!(sum>0))
+		{
+			throw new IllegalArgumentException("No weight is above 0");
+		}
+		_mean=mean/sum;
+		_probability=new double[n];
+		_alias=new int[n];
+
+		//the columns with too little of their own weight, and those with too much, to give away
+		double[] scaled=new double[n];
+		int[] small=new int[n];
+		int[] large=new int[n];
+		int smallcount=0;
+		int largecount=0;
+		for (int i=0; i<n; i++)
+		{
+			scaled[i]=weights[i]*n/sum;
+			if (scaled[i]<1)
+			{
+				small[smallcount++]=i;
+			}
+			else
+			{
+				large[largecount++]=i;
+			}
+		}
+		while (smallcount>0 && largecount>0)
+		{
+			int less=small[--smallcount];
+			int more=large[--largecount];
+			_probability[less]=scaled[less];
+			_alias[less]=more;
+			scaled[more]=(scaled[more]+scaled[less])-1;
+			if (scaled[more]<1)
+			{
+				small[smallcount++]=more;
+			}
+			else
+			{
+				large[largecount++]=more;
+			}
+		}
+		//what is left is 1 but for rounding
+		while (largecount>0)
+		{
+			int i=large[--largecount];
+			_probability[i]=1;
+			_alias[i]=i;
+		}
+		while (smallcount>0)
+		{
+			int i=small[--smallcount];
+			_probability[i]=1;
+			_alias[i]=i;
+		}
+	}
+
+	@Override
+	public int nextInt()
+	{
+		double u=Utils.random().nextDouble()*_probability.length;
+		//rounding can take u up to the number of columns
+		int column=Math.min((int)u,_probability.length-1);
+		int ret=(u-column<_probability[column]) ? column : _alias[column];
+		setLastInt(ret);
+		return ret;
+	}
+
+	@Override
+	public double mean()
+	{
+		return _mean;
+	}
+}
@@ -37,7 +37,7 @@ public class DiscreteGenerator extends Generator
 	 */
 	public String nextString()
 	{
-        double val=Utils.random().nextInt(100)/100.0 * _valueSum;
+        double val=Utils.random().nextDouble() * _valueSum;
 
         for (int i = 1; i < _values.size(); i++) {
             Pair p = _values.get(i);
@@ -1,14 +1,15 @@
 package com.yahoo.ycsb.generator;
 
 /**
- * A generator that is capable of generating ints as well as strings
+ * A generator that is capable of generating ints as well as strings. Generators of record numbers also
+ * generate longs, so there can be more records than fit in an int.
  * 
  * @author cooperb
  *
  */
 public abstract class IntegerGenerator extends Generator 
 {
-	int lastint;
+	long lastvalue;
 	
 	/**
 	 * Set the last value generated. IntegerGenerator subclasses must use this call
@@ -16,7 +17,15 @@ public abstract class IntegerGenerator extends Generator
 	 */
 	protected void setLastInt(int last)
 	{
-		lastint=last;
+		lastvalue=last;
+	}
+	
+	/**
+	 * Set the last value generated, for generators of longs.
+	 */
+	protected void setLastLong(long last)
+	{
+		lastvalue=last;
 	}
 	
 	/**
@@ -24,12 +33,21 @@ public abstract class IntegerGenerator extends Generator
 	 */
 	public abstract int nextInt();
 	
+	/**
+	 * Return the next value as a long. Generators whose values can exceed the range of an int must override this,
+	 * and make nextInt() return the same value cast to an int.
+	 */
+	public long nextLong()
+	{
+		return nextInt();
+	}
+	
 	/**
 	 * Generate the next string in the distribution.
 	 */
 	public String nextString()
 	{
-		return ""+nextInt();
+		return ""+nextLong();
 	}
 	
 	/**
@@ -40,7 +58,7 @@ public abstract class IntegerGenerator extends Generator
 	@Override
 	public String lastString()
 	{
-		return ""+lastInt();
+		return ""+lastLong();
 	}
 	
 	/**
@@ -49,7 +67,15 @@ public abstract class IntegerGenerator extends Generator
 	 */
 	public int lastInt()
 	{
-		return lastint;
+		return (int)lastLong();
+	}
+	
+	/**
+	 * Return the previous value generated by the distribution, as a long.
+	 */
+	public long lastLong()
+	{
+		return lastvalue;
 	}
 	/**
 	 * Return the expected value (mean) of the values this generator will return.
@@ -0,0 +1,176 @@
+package com.yahoo.ycsb.measurements;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.DecimalFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+/**
+ * Reads a log written by {@link HistogramLogWriter}, and reports the latency percentiles of each operation over a
+ * range of time, and optionally of each interval in it.
+ */
+public class HistogramLogReader
+{
+	/**
+	 * One logged interval of one operation.
+	 */
+	public static class Interval
+	{
+		/**
+		 * The start of the interval in milliseconds since the log started, and its length in milliseconds.
+		 */
+		public long start;
+		public long length;
+		public OneMeasurementHdrHistogram histogram;
+	}
+
+	DataInputStream _in;
+	long _starttime;
+	double[] _percentiles;
+
+	/**
+	 * @param percentiles the percentiles the histograms read will export
+	 */
+	public HistogramLogReader(InputStream in, double[] percentiles) throws IOException
+	{
+		_in=new DataInputStream(new BufferedInputStream(in));
+		_percentiles=percentiles;
+		if (_in.readLong()!=HistogramLogWriter.MAGIC)
+		{
+			throw new IOException("Not a histogram log");
+		}
+		_starttime=_in.readLong();
+	}
+
+	/**
+	 * @return the wall clock time the log was started at, in milliseconds
+	 */
+	public long getStartTime()
+	{
+		return _starttime;
+	}
+
+	/**
+	 * @return the next interval, or null at the end of the log, including one cut short by a crash
+	 */
+	public Interval next() throws IOException
+	{
+		try
+		{
+			Interval interval=new Interval();
+			interval.start=_in.readLong();
+			interval.length=_in.readLong();
+			String name=_in.readUTF();
+			byte[] histogram=new byte[_in.readInt()];
+			_in.readFully(histogram);
+			interval.histogram=OneMeasurementHdrHistogram.decode(name,histogram,_percentiles);
+			return interval;
+		}
+		catch (EOFException e)
+		{
+			return null;
+		}
+	}
+
+	public void close() throws IOException
+	{
+		_in.close();
+	}
+
+	public static void usageMessage()
+	{
+		System.out.println("Usage: java com.yahoo.ycsb.measurements.HistogramLogReader [options] logfile");
+		System.out.println("Options:");
+		System.out.println("  -start s: leave out intervals that start before s seconds into the log (default: 0)");
+		System.out.println("  -end s: leave out intervals that end after s seconds into the log (default: the end)");
+		System.out.println("  -percentiles list: the percentiles to report, e.g. 50,99,99.9 (default: 50,90,99,99.9,99.99)");
+		System.out.println("  -intervals: also print the percentiles of each interval, to look for stalls");
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		double start=0;
+		double end=Double.MAX_VALUE;
+		double[] percentiles=OneMeasurementHdrHistogram.parsePercentiles("50,90,99,99.9,99.99");
+		boolean intervals=false;
+		int argindex=0;
+		try
+		{
+			while (argindex<args.length-1)
+			{
+				if (args[argindex].equals("-start"))
+				{
+					start=Double.parseDouble(args[++argindex]);
+				}
+				else if (args[argindex].equals("-end"))
+				{
+					end=Double.parseDouble(args[++argindex]);
+				}
+				else if (args[argindex].equals("-percentiles"))
+				{
+					percentiles=OneMeasurementHdrHistogram.parsePercentiles(args[++argindex]);
+				}
+				else if (args[argindex].equals("-intervals"))
+				{
+					intervals=true;
+				}
+				else
+				{
+					break;
+				}
+				argindex++;
+			}
+		}
+		catch (RuntimeException e)
+		{
+			usageMessage();
+			System.exit(0);
+		}
+		if (argindex!=args.length-1)
+		{
+			usageMessage();
+			System.exit(0);
+		}
+
+		HistogramLogReader reader=new HistogramLogReader(new FileInputStream(args[argindex]),percentiles);
+		Map<String,OneMeasurement> total=new TreeMap<String,OneMeasurement>();
+		DecimalFormat d=new DecimalFormat("#.###");
+		for (Interval interval=reader.next(); interval!=null; interval=reader.next())
+		{
+			if (interval.start<start*1000 || interval.start+interval.length>end*1000)
+			{
+				continue;
+			}
+			OneMeasurementHdrHistogram histogram=interval.histogram;
+			if (intervals)
+			{
+				StringBuilder line=new StringBuilder();
+				line.append(d.format(interval.start/1e3)).append(" sec: [").append(histogram.getName()).append("] ");
+				line.append(histogram.getOperations()).append(" operations");
+				for (double percentile : percentiles)
+				{
+					line.append(", ").append(d.format(percentile)).append("th ").append(d.format(histogram.getPercentileLatency(percentile)/1e3)).append(" ms");
+				}
+				line.append(", max ").append(d.format(histogram.max/1e6)).append(" ms");
+				System.out.println(line);
+			}
+			Map<String,OneMeasurement> one=new HashMap<String,OneMeasurement>();
+			one.put(histogram.getName(),histogram);
+			Measurements.merge(total,one);
+		}
+		reader.close();
+
+		MeasurementsExporter exporter=new TextMeasurementsExporter(System.out);
+		Measurements.exportMeasurements(total,exporter);
+		exporter.close();
+	}
+}
@@ -0,0 +1,117 @@
+package com.yahoo.ycsb.measurements;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Appends the latency histograms of each interval of a run to a log, for {@link HistogramLogReader} to report
+ * percentiles over any part of the run, e.g. to find the seconds in which a store stalled.
+ *
+ * Every interval, the measurements of all threads are collected and the interval since the previous collection
+ * is worked out; collecting flips the threads over to fresh histograms, so they are never held up.
+ * Only measurements of the "hdrhistogram" type can be logged.
+ *
+ * The log starts with {@link #MAGIC} and the wall clock time it was started at in milliseconds. Each interval
+ * and operation with measurements in it then gets a record holding the start of the interval in milliseconds
+ * since the log started and its length in milliseconds, as longs, the name of the operation as modified UTF-8,
+ * and the histogram as encoded by {@link OneMeasurementHdrHistogram#encode()}, preceded by its length as an int.
+ */
+public class HistogramLogWriter extends Thread
+{
+	/**
+	 * A file to log interval histograms to. Only for measurementtype=hdrhistogram.
+	 */
+	public static final String FILE_PROPERTY="hdrhistogram.log";
+
+	/**
+	 * The length of each interval in milliseconds.
+	 */
+	public static final String INTERVAL_PROPERTY="hdrhistogram.log.interval";
+
+	public static final String INTERVAL_PROPERTY_DEFAULT="1000";
+
+	public static final long MAGIC=0x5943534248494c31L; // "YCSBHIL1"
+
+	Measurements _measurements;
+	DataOutputStream _out;
+	long _interval;
+	long _start;
+
+	public HistogramLogWriter(Measurements measurements, String filename, long interval) throws IOException
+	{
+		_measurements=measurements;
+		_interval=interval;
+		_start=System.currentTimeMillis();
+		_out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+		_out.writeLong(MAGIC);
+		_out.writeLong(_start);
+		_out.flush();
+		setDaemon(true);
+	}
+
+	/**
+	 * Log intervals until interrupted, then log the last partial interval and close the log.
+	 */
+	public void run()
+	{
+		Map<String,OneMeasurement> previous=_measurements.snapshot();
+		long last=_start;
+		boolean interrupted=false;
+		try
+		{
+			while (!interrupted)
+			{
+				try
+				{
+					sleep(Math.max(1,last+_interval-System.currentTimeMillis()));
+				}
+				catch (InterruptedException e)
+				{
+					interrupted=true;
+				}
+
+				Map<String,OneMeasurement> current=_measurements.snapshot();
+				long now=System.currentTimeMillis();
+				log(last,now,Measurements.since(current,previous));
+				previous=current;
+				last=now;
+			}
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+		finally
+		{
+			try
+			{
+				_out.close();
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+	}
+
+	void log(long start, long end, Map<String,OneMeasurement> interval) throws IOException
+	{
+		for (OneMeasurement m : interval.values())
+		{
+			if (m.getOperations()==0 || !(m instanceof OneMeasurementHdrHistogram))
+			{
+				continue;
+			}
+			byte[] histogram=((OneMeasurementHdrHistogram)m).encode();
+			_out.writeLong(start-_start);
+			_out.writeLong(end-start);
+			_out.writeUTF(m.getName());
+			_out.writeInt(histogram.length);
+			_out.write(histogram);
+		}
+		_out.flush();
+	}
+}
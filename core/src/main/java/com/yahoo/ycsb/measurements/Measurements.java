@@ -8,6 +8,18 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 /**
  * Collects latency measurements, and reports them when requested.
+ *
+ * Each thread records into measurements of its own, in one of two maps: the active one, which only that thread
+ * touches, while the other waits to be collected. To collect, e.g. for a status line or a snapshot, the maps of each
+ * thread are flipped with a {@link SingleWriterPhaser}, and what was recorded into the newly inactive ones is merged
+ * into a combined total, after which they are reset to be recorded into again. Recording thus never takes a lock,
+ * and only allocates measurements the first time a thread measures an operation, however often they are collected.
+ *
+ * When operations follow a schedule, each is measured twice: by its service time, from when it was sent until it
+ * returned, under the name of the operation, and by its response time, from when it was scheduled to start, under
+ * {@link #INTENDED_PREFIX} + the name. How late each was sent is measured under {@link #BEHIND_SCHEDULE}. A client
+ * that can't keep up shows as response times, and time behind schedule, running away from the service times; a
+ * store that slows down shows in the service times themselves.
  * 
  * @author cooperb
  *
@@ -39,16 +51,39 @@ public class Measurements
 		return singleton;
 	}
 
-    final List<Map<String, OneMeasurement>> allData = Collections.synchronizedList(new ArrayList<Map<String, OneMeasurement>>());
-	final ThreadLocal<Map<String,OneMeasurement>> data = new ThreadLocal<Map<String, OneMeasurement>>() {
+    /**
+     * The measurements of one thread.
+     */
+    static class ThreadMeasurements {
+        final SingleWriterPhaser phaser = new SingleWriterPhaser();
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final Map<String, OneMeasurement>[] maps = new Map[] { new HashMap<String, OneMeasurement>(), new HashMap<String, OneMeasurement>() };
+
+        /**
+         * The time at which the current operation of the thread was scheduled to start.
+         */
+        long intendedStartTime;
+    }
+
+    final List<ThreadMeasurements> allData = new ArrayList<ThreadMeasurements>();
+	final ThreadLocal<ThreadMeasurements> data = new ThreadLocal<ThreadMeasurements>() {
         @Override
-        protected Map<String, OneMeasurement> initialValue() {
-            Map<String, OneMeasurement> map = new HashMap<String, OneMeasurement>();
-                allData.add(map);
-            return map;
+        protected ThreadMeasurements initialValue() {
+            ThreadMeasurements t = new ThreadMeasurements();
+            synchronized (allData) {
+                allData.add(t);
+            }
+            return t;
         }
     };
-	boolean histogram=true;
+
+    /**
+     * What was collected from all threads so far, guarded by allData.
+     */
+    final Map<String, OneMeasurement> total = new HashMap<String, OneMeasurement>();
+
+	String measurementtype;
 
 	private Properties _props;
 	
@@ -59,22 +94,19 @@ public class Measurements
 	{
 		_props=props;
 		
-		if (_props.getProperty(MEASUREMENT_TYPE, MEASUREMENT_TYPE_DEFAULT).compareTo("histogram")==0)
-		{
-			histogram=true;
-		}
-		else
-		{
-			histogram=false;
-		}
+		measurementtype=_props.getProperty(MEASUREMENT_TYPE, MEASUREMENT_TYPE_DEFAULT);
 	}
 	
 	OneMeasurement constructOneMeasurement(String name)
 	{
-		if (histogram)
+		if (measurementtype.compareTo("histogram")==0)
 		{
 			return new OneMeasurementHistogram(name,_props);
 		}
+		else if (measurementtype.compareTo("hdrhistogram")==0)
+		{
+			return new OneMeasurementHdrHistogram(name,_props);
+		}
 		else
 		{
 			return new OneMeasurementTimeSeries(name,_props);
@@ -86,23 +118,120 @@ public class Measurements
        */
 	public void measure(String operation, int latency)
 	{
-        acquireOneMeasurement(operation).measure(latency);
+        ThreadMeasurements t = data.get();
+        int phase = t.phaser.enter();
+        try {
+            acquireOneMeasurement(t.maps[phase], operation).measure(latency);
+        } finally {
+            t.phaser.exit();
+        }
 	}
 
-    private OneMeasurement acquireOneMeasurement(String operation) {
-        OneMeasurement oneMeasurement = data.get().get(operation);
+    private OneMeasurement acquireOneMeasurement(Map<String, OneMeasurement> map, String operation) {
+        OneMeasurement oneMeasurement = map.get(operation);
         if (oneMeasurement == null) {
-            data.get().put(operation, oneMeasurement = constructOneMeasurement(operation));
+            map.put(operation, oneMeasurement = constructOneMeasurement(operation));
         }
         return oneMeasurement;
     }
 
+    /**
+     * Report the latency of an operation measured from its intended start time rather than from the time
+     * it was actually sent. Only recorded for operations with a schedule, see {@link #setIntendedStartTimeNs(long)}.
+     * The measurement is kept under the name {@link #INTENDED_PREFIX} + operation.
+     */
+    public void measureIntended(String operation, int latency)
+    {
+        measure(intendedName(operation), latency);
+    }
+
+    /**
+     * Report a single latency in nanoseconds, kept at that resolution by measurements that support it.
+     */
+    public void measureNanos(String operation, long nanos)
+    {
+        ThreadMeasurements t = data.get();
+        int phase = t.phaser.enter();
+        try {
+            acquireOneMeasurement(t.maps[phase], operation).measureNanos(nanos);
+        } finally {
+            t.phaser.exit();
+        }
+    }
+
+    /**
+     * Report a latency in nanoseconds measured from the intended start time, see {@link #measureIntended(String, int)}.
+     */
+    public void measureIntendedNanos(String operation, long nanos)
+    {
+        measureNanos(intendedName(operation), nanos);
+    }
+
+    public static final String INTENDED_PREFIX = "Intended-";
+
+    static String intendedName(String operation) {
+        String name = intendedNames.get(operation);
+        if (name == null) {
+            intendedNames.put(operation, name = INTENDED_PREFIX + operation);
+        }
+        return name;
+    }
+
+    static final ConcurrentHashMap<String, String> intendedNames = new ConcurrentHashMap<String, String>();
+
+    /**
+     * The name under which the time between the intended start of each scheduled operation and the time it was
+     * actually started is measured.
+     */
+    public static final String BEHIND_SCHEDULE = "BEHIND-SCHEDULE";
+
+    /**
+     * Set the time (from System.nanoTime()) at which the next operation of the calling thread was scheduled to start,
+     * and measure how far behind that schedule it is now. An open loop client sets this just before each operation;
+     * zero means there is no schedule.
+     */
+    public void setIntendedStartTimeNs(long time)
+    {
+        data.get().intendedStartTime = time;
+        if (time != 0) {
+            measureNanos(BEHIND_SCHEDULE, Math.max(0, System.nanoTime() - time));
+        }
+    }
+
+    /**
+     * @return the intended start time of the current operation of the calling thread, or zero if it has none.
+     */
+    public long getIntendedStartTimeNs()
+    {
+        return data.get().intendedStartTime;
+    }
+
+    /**
+     * Report the number of keys of a single operation on many keys at once, see {@link OneMeasurement#reportKeys(int)}.
+     */
+    public void reportKeys(String operation, int keys)
+    {
+        ThreadMeasurements t = data.get();
+        int phase = t.phaser.enter();
+        try {
+            acquireOneMeasurement(t.maps[phase], operation).reportKeys(keys);
+        } finally {
+            t.phaser.exit();
+        }
+    }
+
     /**
        * Report a return code for a single DB operaiton.
        */
 	public void reportReturnCode(String operation, int code)
 	{
-        acquireOneMeasurement(operation).reportReturnCode(code);
+        ThreadMeasurements t = data.get();
+        int phase = t.phaser.enter();
+        try {
+            acquireOneMeasurement(t.maps[phase], operation).reportReturnCode(code);
+        } finally {
+            t.phaser.exit();
+        }
 	}
 	
   /**
@@ -113,28 +242,132 @@ public class Measurements
    */
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException
   {
-      Map<String, OneMeasurement> data = combineAllData();
-    for (OneMeasurement measurement : data.values())
+    exportMeasurements(combineAllData(), exporter);
+  }
+
+  /**
+   * Export the given measurements, e.g. as returned by {@link #snapshot()}, to a suitable format. They are exported
+   * by name, each followed by its response time under {@link #INTENDED_PREFIX} + the name, if there is one.
+   * 
+   * @param data Combined measurements by name.
+   * @param exporter Exporter representing the type of format to write to.
+   * @throws IOException Thrown if the export failed.
+   */
+  public static void exportMeasurements(Map<String, OneMeasurement> data, MeasurementsExporter exporter) throws IOException
+  {
+    TreeMap<String, OneMeasurement> sorted = new TreeMap<String, OneMeasurement>(data);
+    for (Map.Entry<String, OneMeasurement> entry : sorted.entrySet())
     {
-      measurement.exportMeasurements(exporter);
+      String name = entry.getKey();
+      if (name.startsWith(INTENDED_PREFIX) && sorted.containsKey(name.substring(INTENDED_PREFIX.length())))
+      {
+        continue;
+      }
+      entry.getValue().exportMeasurements(exporter);
+      OneMeasurement intended = sorted.get(INTENDED_PREFIX + name);
+      if (intended != null)
+      {
+        intended.exportMeasurements(exporter);
+      }
     }
   }
 
-    private Map<String, OneMeasurement> combineAllData() {
-        Map<String, OneMeasurement> comb = new HashMap<String, OneMeasurement>();
+    /**
+     * Return a copy of the current measurements of all threads, combined by name.
+     */
+    public Map<String, OneMeasurement> snapshot() {
+        return combineAllData();
+    }
+
+    /**
+     * Merge measurements combined by name into another such map. Measurements missing from the target are
+     * copied, so the source is left untouched.
+     */
+    public static void merge(Map<String, OneMeasurement> into, Map<String, OneMeasurement> from) {
+        for (Map.Entry<String, OneMeasurement> entry : from.entrySet()) {
+            OneMeasurement om = into.get(entry.getKey());
+            if (om == null) {
+                into.put(entry.getKey(), entry.getValue().clone());
+            } else {
+                om.merge(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Return the measurements taken between two snapshots, combined by name.
+     */
+    public static Map<String, OneMeasurement> since(Map<String, OneMeasurement> later, Map<String, OneMeasurement> earlier) {
+        Map<String, OneMeasurement> interval = new HashMap<String, OneMeasurement>();
+        for (Map.Entry<String, OneMeasurement> entry : later.entrySet()) {
+            OneMeasurement before = earlier.get(entry.getKey());
+            interval.put(entry.getKey(), before == null ? entry.getValue() : entry.getValue().since(before));
+        }
+        return interval;
+    }
+
+    /**
+     * Return the highest latency at the given percentile over the operations in the given measurements, in
+     * microseconds, or -1 if none were measured. CLEANUP and BEHIND-SCHEDULE are left out.
+     *
+     * @param operation the only operation to look at, e.g. "READ", or null for all of them
+     * @param intended true to look at the latencies measured from the intended start time, false for the others
+     */
+    public static double getPercentileLatency(Map<String, OneMeasurement> data, double percentile, String operation, boolean intended) {
+        double latency = -1;
+        for (OneMeasurement m : data.values()) {
+            String name = m.getName();
+            if (name.startsWith(INTENDED_PREFIX) != intended) {
+                continue;
+            }
+            if (intended) {
+                name = name.substring(INTENDED_PREFIX.length());
+            }
+            if (name.equals("CLEANUP") || name.equals(BEHIND_SCHEDULE) || m.getOperations() == 0 || (operation != null && !name.equals(operation))) {
+                continue;
+            }
+            latency = Math.max(latency, m.getPercentileLatency(percentile));
+        }
+        return latency;
+    }
+
+    /**
+     * Discard all measurements taken so far, e.g. between the phases of a run.
+     */
+    public void reset() {
         synchronized (allData) {
-            for (Map<String, OneMeasurement> map : allData) {
-                for (Map.Entry<String, OneMeasurement> entry : map.entrySet()) {
-                    OneMeasurement om = comb.get(entry.getKey());
-                    if (om == null) {
-                        comb.put(entry.getKey(), om = entry.getValue().clone());
-                    } else {
-                        om.merge(entry.getValue());
-                    }
+            for (ThreadMeasurements t : allData) {
+                t.maps[t.phaser.flip()].clear();
+                t.maps[t.phaser.flip()].clear();
+            }
+            total.clear();
+        }
+    }
 
+    /**
+     * Merge what each thread recorded since the last collection into the total, and reset the measurements of the
+     * thread to be recorded into again. Must hold the allData lock.
+     */
+    private void collect() {
+        for (ThreadMeasurements t : allData) {
+            for (OneMeasurement m : t.maps[t.phaser.flip()].values()) {
+                OneMeasurement om = total.get(m.getName());
+                if (om == null) {
+                    total.put(m.getName(), m.clone());
+                } else {
+                    om.merge(m);
                 }
+                m.reset();
             }
         }
+    }
+
+    private Map<String, OneMeasurement> combineAllData() {
+        Map<String, OneMeasurement> comb = new HashMap<String, OneMeasurement>();
+        synchronized (allData) {
+            collect();
+            merge(comb, total);
+        }
         return comb;
     }
 
@@ -144,11 +377,14 @@ public class Measurements
 	public String getSummary()
 	{
 		String ret="";
-        Map<String, OneMeasurement> data = combineAllData();
-		for (OneMeasurement m : data.values())
-		{
-			ret+=m.getSummary()+" ";
-		}
+        synchronized (allData) {
+            //the window of the total runs from one summary to the next
+            collect();
+            for (OneMeasurement m : total.values())
+            {
+                ret+=m.getSummary()+" ";
+            }
+        }
 		
 		return ret;
 	}
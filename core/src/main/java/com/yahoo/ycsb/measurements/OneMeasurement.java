@@ -1,13 +1,19 @@
 package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
+import java.io.Serializable;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 /**
  * A single measured metric (such as READ LATENCY)
+ *
+ * Measurements are recorded into by one thread at a time, see {@link Measurements}, so measure() and
+ * reportReturnCode() need no locking.
  */
-public abstract class OneMeasurement implements Cloneable {
+public abstract class OneMeasurement implements Cloneable, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	String _name;
 	
@@ -26,6 +32,25 @@ public abstract class OneMeasurement implements Cloneable {
 
 	public abstract void measure(int latency);
 
+    /**
+     * The number of keys the operations measured were on, for operations on many keys at once.
+     */
+    long keys;
+
+    /**
+     * Report the number of keys an operation on many keys at once was on, so its latency per key can be exported.
+     */
+    public void reportKeys(int count) {
+        keys += count;
+    }
+
+    /**
+     * Measure a latency given in nanoseconds. By default it is cut down to whole microseconds.
+     */
+    public void measureNanos(long nanos) {
+        measure((int) Math.min(nanos / 1000, Integer.MAX_VALUE));
+    }
+
 	public abstract String getSummary();
 
   /**
@@ -45,4 +70,35 @@ public abstract class OneMeasurement implements Cloneable {
     }
 
     public abstract void merge(OneMeasurement value);
+
+    /**
+     * Discard everything measured so far, but keep what was allocated for it, to measure into again.
+     */
+    public abstract void reset();
+
+    /**
+     * @return the number of operations measured.
+     */
+    public abstract long getOperations();
+
+    /**
+     * Return the latency below which the given percentage of operations fall, e.g. 99 for the 99th percentile.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency in microseconds
+     * @throws UnsupportedOperationException if this measurement does not keep a latency distribution
+     */
+    public double getPercentileLatency(double percentile) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support percentiles");
+    }
+
+    /**
+     * Return the measurements taken since the given earlier copy of this measurement was made, e.g. to look at
+     * one interval of a run.
+     *
+     * @throws UnsupportedOperationException if this measurement can't be split up that way
+     */
+    public OneMeasurement since(OneMeasurement earlier) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support intervals");
+    }
 }
@@ -0,0 +1,475 @@
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Take measurements in nanoseconds and maintain a log-linear histogram of a given metric, in the manner of
+ * HdrHistogram, so latencies from nanoseconds to hours are all kept to a given number of significant digits.
+ *
+ * Values below 2^b, where 2^b is the smallest power of two of at least twice 10^digits, each have a bucket of
+ * their own. Above that, the values from 2^(b-1+e) to 2^(b+e) share 2^(b-1) buckets of width 2^e, so every bucket
+ * is narrower than a 10^-digits part of the values in it. The buckets for each e are only allocated once a value
+ * falls in them, so a measurement with latencies over a few powers of two takes a few KB.
+ */
+public class OneMeasurementHdrHistogram extends OneMeasurement {
+    private static final long serialVersionUID = 1L;
+
+    public static final String DIGITS = "hdrhistogram.digits";
+    public static final String DIGITS_DEFAULT = "2";
+
+    /**
+     * The percentiles to export, separated by commas.
+     */
+    public static final String PERCENTILES = "hdrhistogram.percentiles";
+    public static final String PERCENTILES_DEFAULT = "95,99";
+
+    final int subBucketBits;
+    final int subBucketHalfCount;
+
+    //the counts of values with each exponent, or null if there were none
+    long[][] counts;
+
+    double[] percentiles;
+
+    long operations;
+    long totalnanos;
+
+    //keep a windowed version of these stats for printing status
+    long windowoperations;
+    long windowtotalnanos;
+
+    long min;
+    long max;
+    HashMap<Integer, int[]> returncodes;
+
+    public OneMeasurementHdrHistogram(String name, Properties props) {
+        this(name, subBucketBits(Integer.parseInt(props.getProperty(DIGITS, DIGITS_DEFAULT))),
+                parsePercentiles(props.getProperty(PERCENTILES, PERCENTILES_DEFAULT)));
+    }
+
+    OneMeasurementHdrHistogram(String name, int subBucketBits, double[] percentiles) {
+        super(name);
+        this.subBucketBits = subBucketBits;
+        subBucketHalfCount = 1 << (subBucketBits - 1);
+        counts = new long[64 - subBucketBits][];
+        this.percentiles = percentiles;
+        min = -1;
+        max = -1;
+        returncodes = new HashMap<Integer, int[]>();
+    }
+
+    /**
+     * @return the number of bits of the values that have a bucket each, for the given number of significant digits
+     */
+    static int subBucketBits(int digits) {
+        if (digits < 1 || digits > 5) {
+            throw new IllegalArgumentException(DIGITS + " must be between 1 and 5");
+        }
+        long largest = 2;
+        for (int i = 0; i < digits; i++) {
+            largest *= 10;
+        }
+        return 64 - Long.numberOfLeadingZeros(largest - 1);
+    }
+
+    /**
+     * Parse a list of percentiles separated by commas, e.g. "50,99,99.9".
+     */
+    public static double[] parsePercentiles(String list) {
+        String[] items = list.split(",");
+        double[] percentiles = new double[items.length];
+        for (int i = 0; i < items.length; i++) {
+            percentiles[i] = Double.parseDouble(items[i].trim());
+        }
+        return percentiles;
+    }
+
+    /**
+     * Set the percentiles to export.
+     */
+    public void setPercentiles(double[] percentiles) {
+        this.percentiles = percentiles;
+    }
+
+    /**
+     * Write the latency distribution of this histogram (but not its return codes) compactly: only the buckets
+     * holding values, as variable length gaps and counts, deflated.
+     */
+    public synchronized byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes));
+        out.writeByte(subBucketBits);
+        out.writeLong(operations);
+        out.writeLong(totalnanos);
+        out.writeLong(min);
+        out.writeLong(max);
+        int segments = 0;
+        for (long[] segment : counts) {
+            if (segment != null) {
+                segments++;
+            }
+        }
+        out.writeByte(segments);
+        for (int e = 0; e < counts.length; e++) {
+            if (counts[e] == null) {
+                continue;
+            }
+            int used = 0;
+            for (long count : counts[e]) {
+                if (count != 0) {
+                    used++;
+                }
+            }
+            out.writeByte(e);
+            writeVarLong(out, used);
+            int last = -1;
+            for (int i = 0; i < counts[e].length; i++) {
+                if (counts[e][i] != 0) {
+                    writeVarLong(out, i - last - 1);
+                    writeVarLong(out, counts[e][i]);
+                    last = i;
+                }
+            }
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Read a histogram written by {@link #encode()}.
+     *
+     * @throws IOException if the bytes are not such a histogram
+     */
+    public static OneMeasurementHdrHistogram decode(String name, byte[] bytes, double[] percentiles) throws IOException {
+        try {
+            return decode(name, new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes))), percentiles);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt histogram of " + name + ": " + e);
+        }
+    }
+
+    static OneMeasurementHdrHistogram decode(String name, DataInputStream in, double[] percentiles) throws IOException {
+        int bits = in.readByte();
+        if (bits < subBucketBits(1) || bits > subBucketBits(5)) {
+            throw new IOException("Corrupt histogram of " + name + ": " + bits + " sub-bucket bits");
+        }
+        OneMeasurementHdrHistogram omh = new OneMeasurementHdrHistogram(name, bits, percentiles);
+        omh.operations = in.readLong();
+        omh.totalnanos = in.readLong();
+        omh.min = in.readLong();
+        omh.max = in.readLong();
+        int segments = in.readByte();
+        for (int s = 0; s < segments; s++) {
+            int e = in.readByte();
+            long[] segment = omh.counts[e] = new long[e == 0 ? 2 * omh.subBucketHalfCount : omh.subBucketHalfCount];
+            long used = readVarLong(in);
+            int i = -1;
+            for (long j = 0; j < used; j++) {
+                i += (int) readVarLong(in) + 1;
+                segment[i] = readVarLong(in);
+            }
+        }
+        return omh;
+    }
+
+    /**
+     * Write this histogram as {@link #encode()} does, preceded by its length, and followed by its return codes,
+     * e.g. to send it to another process.
+     */
+    public synchronized void write(DataOutput out) throws IOException {
+        byte[] histogram = encode();
+        out.writeInt(histogram.length);
+        out.write(histogram);
+        out.writeInt(returncodes.size());
+        for (Map.Entry<Integer, int[]> entry : returncodes.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue()[0]);
+        }
+        out.writeLong(keys);
+    }
+
+    /**
+     * Read a histogram written by {@link #write(DataOutput)}.
+     *
+     * @throws IOException if what is read is not such a histogram
+     */
+    public static OneMeasurementHdrHistogram read(String name, DataInput in, double[] percentiles) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupt histogram of " + name + ": " + length + " bytes");
+        }
+        byte[] histogram = new byte[length];
+        in.readFully(histogram);
+        OneMeasurementHdrHistogram omh = decode(name, histogram, percentiles);
+        int codes = in.readInt();
+        for (int i = 0; i < codes; i++) {
+            int code = in.readInt();
+            omh.returncodes.put(code, new int[] {in.readInt()});
+        }
+        omh.keys = in.readLong();
+        return omh;
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    @Override
+    public synchronized OneMeasurementHdrHistogram clone() {
+        OneMeasurementHdrHistogram omh = (OneMeasurementHdrHistogram) super.clone();
+        omh.counts = counts.clone();
+        for (int e = 0; e < counts.length; e++) {
+            if (counts[e] != null) {
+                omh.counts[e] = counts[e].clone();
+            }
+        }
+        omh.returncodes = new HashMap<Integer, int[]>();
+        for (Map.Entry<Integer, int[]> entry : returncodes.entrySet()) {
+            omh.returncodes.put(entry.getKey(), entry.getValue().clone());
+        }
+        return omh;
+    }
+
+    /**
+     * The minimum and maximum latency of the interval are those of the buckets left, so only as precise as them.
+     */
+    @Override
+    public synchronized OneMeasurementHdrHistogram since(OneMeasurement earlier) {
+        OneMeasurementHdrHistogram omh = clone();
+        OneMeasurementHdrHistogram before = (OneMeasurementHdrHistogram) earlier;
+        for (int e = 0; e < counts.length; e++) {
+            if (before.counts[e] != null) {
+                for (int i = 0; i < before.counts[e].length; i++)
+                    omh.counts[e][i] -= before.counts[e][i];
+            }
+        }
+        omh.operations -= before.operations;
+        omh.totalnanos -= before.totalnanos;
+        omh.keys -= before.keys;
+        omh.min = -1;
+        omh.max = -1;
+        for (int e = 0; e < counts.length; e++) {
+            for (int i = 0; omh.counts[e] != null && i < omh.counts[e].length; i++) {
+                if (omh.counts[e][i] != 0) {
+                    if (omh.min < 0) {
+                        omh.min = Math.max(highestValue(e, i) + 1 - (1L << e), min);
+                    }
+                    omh.max = Math.min(highestValue(e, i), max);
+                }
+            }
+        }
+        for (Map.Entry<Integer, int[]> entry : before.returncodes.entrySet()) {
+            int[] ints = omh.returncodes.get(entry.getKey());
+            for (int i = 0; i < ints.length; i++)
+                ints[i] -= entry.getValue()[i];
+        }
+        return omh;
+    }
+
+    @Override
+    public synchronized void merge(OneMeasurement value) {
+        OneMeasurementHdrHistogram omh = (OneMeasurementHdrHistogram) value;
+        assert subBucketBits == omh.subBucketBits;
+        for (int e = 0; e < counts.length; e++) {
+            if (omh.counts[e] == null) {
+                continue;
+            }
+            if (counts[e] == null) {
+                counts[e] = omh.counts[e].clone();
+            } else {
+                for (int i = 0; i < counts[e].length; i++)
+                    counts[e][i] += omh.counts[e][i];
+            }
+        }
+        operations += omh.operations;
+        totalnanos += omh.totalnanos;
+        windowoperations += omh.windowoperations;
+        windowtotalnanos += omh.windowtotalnanos;
+        keys += omh.keys;
+        if (omh.min >= 0 && (min < 0 || omh.min < min)) min = omh.min;
+        if (omh.max > max) max = omh.max;
+        for (Map.Entry<Integer, int[]> entry : omh.returncodes.entrySet()) {
+            int[] ints = returncodes.get(entry.getKey());
+            if (ints == null) {
+                returncodes.put(entry.getKey(), entry.getValue().clone());
+            } else {
+                for (int i = 0; i < ints.length; i++)
+                    ints[i] += entry.getValue()[i];
+            }
+        }
+    }
+
+    @Override
+    public synchronized void reset() {
+        for (long[] segment : counts) {
+            if (segment != null) {
+                Arrays.fill(segment, 0);
+            }
+        }
+        operations = 0;
+        totalnanos = 0;
+        windowoperations = 0;
+        windowtotalnanos = 0;
+        keys = 0;
+        min = -1;
+        max = -1;
+        for (int[] count : returncodes.values()) {
+            Arrays.fill(count, 0);
+        }
+    }
+
+    public void reportReturnCode(int code) {
+        int[] val = returncodes.get(code);
+        if (val == null) {
+            returncodes.put(code, val = new int[1]);
+        }
+        val[0]++;
+    }
+
+    public void measure(int latency) {
+        measureNanos(latency * 1000L);
+    }
+
+    @Override
+    public void measureNanos(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int e = exponent(nanos);
+        long[] bucket = counts[e];
+        if (bucket == null) {
+            counts[e] = bucket = new long[e == 0 ? 2 * subBucketHalfCount : subBucketHalfCount];
+        }
+        bucket[index(nanos, e)]++;
+
+        operations++;
+        totalnanos += nanos;
+        windowoperations++;
+        windowtotalnanos += nanos;
+        if (min < 0 || nanos < min) {
+            min = nanos;
+        }
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /**
+     * @return the exponent of the width of the buckets a value falls in
+     */
+    int exponent(long value) {
+        return Math.max(0, 64 - Long.numberOfLeadingZeros(value) - subBucketBits);
+    }
+
+    int index(long value, int exponent) {
+        return exponent == 0 ? (int) value : (int) (value >>> exponent) - subBucketHalfCount;
+    }
+
+    /**
+     * @return the highest value that falls in the given bucket
+     */
+    long highestValue(int exponent, int index) {
+        long lowest = exponent == 0 ? index : (long) (index + subBucketHalfCount) << exponent;
+        return lowest + (1L << exponent) - 1;
+    }
+
+    /**
+     * Return the latency at or below which the given percentage of operations fall, to the number of significant
+     * digits of this histogram, in nanoseconds.
+     */
+    public synchronized long getPercentileNanos(double percentile) {
+        if (operations == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * operations));
+        long count = 0;
+        for (int e = 0; e < counts.length; e++) {
+            if (counts[e] == null) {
+                continue;
+            }
+            for (int i = 0; i < counts[e].length; i++) {
+                count += counts[e][i];
+                if (count >= target) {
+                    return Math.min(highestValue(e, i), max);
+                }
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public double getPercentileLatency(double percentile) {
+        return getPercentileNanos(percentile) / 1e3;
+    }
+
+    @Override
+    public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+        if (operations <= Integer.MAX_VALUE)
+            exporter.write(getName(), "Operations", (int) operations);
+        else
+            exporter.write(getName(), "Operations", (double) operations);
+        if (operations > 0) {
+            exporter.write(getName(), "AverageLatency(us)", totalnanos / operations / 1e3);
+            if (keys > 0) {
+                exporter.write(getName(), "AmortizedLatencyPerKey(us)", totalnanos / 1e3 / keys);
+            }
+            exporter.write(getName(), "MinLatency(us)", min / 1e3);
+            exporter.write(getName(), "MaxLatency(us)", max / 1e3);
+            DecimalFormat d = new DecimalFormat("#.###");
+            for (double percentile : percentiles) {
+                exporter.write(getName(), d.format(percentile) + "thPercentileLatency(ms)", getPercentileNanos(percentile) / 1e6);
+            }
+        }
+
+        for (Map.Entry<Integer, int[]> entry : returncodes.entrySet()) {
+            exporter.write(getName(), "Return=" + entry.getKey(), entry.getValue()[0]);
+        }
+    }
+
+    @Override
+    public long getOperations() {
+        return operations;
+    }
+
+    @Override
+    public synchronized String getSummary() {
+        if (windowoperations == 0) {
+            return "";
+        }
+        DecimalFormat d = new DecimalFormat("#.##");
+        double report = windowtotalnanos / 1e3 / windowoperations;
+        windowtotalnanos = 0;
+        windowoperations = 0;
+        return "[" + getName() + " AverageLatency(us)=" + d.format(report) + "]";
+    }
+}
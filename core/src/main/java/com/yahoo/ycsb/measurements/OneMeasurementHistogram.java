@@ -4,6 +4,7 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -15,6 +16,8 @@ import java.util.Properties;
  * @author cooperb
  */
 public class OneMeasurementHistogram extends OneMeasurement {
+    private static final long serialVersionUID = 1L;
+
     public static final String BUCKETS = "histogram.buckets";
     public static final String BUCKETS_DEFAULT = "100000";
 
@@ -46,6 +49,38 @@ public class OneMeasurementHistogram extends OneMeasurement {
         returncodes = new HashMap<Integer, int[]>();
     }
 
+    @Override
+    public synchronized OneMeasurementHistogram clone() {
+        OneMeasurementHistogram omh = (OneMeasurementHistogram) super.clone();
+        omh.histogram = histogram.clone();
+        omh.returncodes = new HashMap<Integer, int[]>();
+        for (Map.Entry<Integer, int[]> entry : returncodes.entrySet()) {
+            omh.returncodes.put(entry.getKey(), entry.getValue().clone());
+        }
+        return omh;
+    }
+
+    /**
+     * The minimum and maximum latency stay those of the whole run.
+     */
+    @Override
+    public synchronized OneMeasurementHistogram since(OneMeasurement earlier) {
+        OneMeasurementHistogram omh = clone();
+        OneMeasurementHistogram before = (OneMeasurementHistogram) earlier;
+        for (int i = 0; i < _buckets; i++)
+            omh.histogram[i] -= before.histogram[i];
+        omh.histogramoverflow -= before.histogramoverflow;
+        omh.operations -= before.operations;
+        omh.totallatency -= before.totallatency;
+        omh.keys -= before.keys;
+        for (Map.Entry<Integer, int[]> entry : before.returncodes.entrySet()) {
+            int[] ints = omh.returncodes.get(entry.getKey());
+            for (int i = 0; i < ints.length; i++)
+                ints[i] -= entry.getValue()[i];
+        }
+        return omh;
+    }
+
     @Override
     public synchronized void merge(OneMeasurement value) {
         OneMeasurementHistogram omh = (OneMeasurementHistogram) value;
@@ -57,7 +92,8 @@ public class OneMeasurementHistogram extends OneMeasurement {
         totallatency += omh.totallatency;
         windowoperations += omh.windowoperations;
         windowtotallatency += omh.windowtotallatency;
-        if (min > omh.min) min = omh.min;
+        keys += omh.keys;
+        if (omh.min >= 0 && (min < 0 || omh.min < min)) min = omh.min;
         if (max < omh.max) max = omh.max;
         for (Map.Entry<Integer, int[]> entry : omh.returncodes.entrySet()) {
             Integer key = entry.getKey();
@@ -73,10 +109,26 @@ public class OneMeasurementHistogram extends OneMeasurement {
         }
     }
 
+    @Override
+    public synchronized void reset() {
+        Arrays.fill(histogram, 0);
+        histogramoverflow = 0;
+        operations = 0;
+        totallatency = 0;
+        windowoperations = 0;
+        windowtotallatency = 0;
+        keys = 0;
+        min = -1;
+        max = -1;
+        for (int[] ints : returncodes.values()) {
+            Arrays.fill(ints, 0);
+        }
+    }
+
     /* (non-Javadoc)
          * @see com.yahoo.ycsb.OneMeasurement#reportReturnCode(int)
          */
-    public synchronized void reportReturnCode(int code) {
+    public void reportReturnCode(int code) {
         Integer Icode = code;
         if (!returncodes.containsKey(Icode)) {
             int[] val = new int[1];
@@ -90,7 +142,7 @@ public class OneMeasurementHistogram extends OneMeasurement {
     /* (non-Javadoc)
      * @see com.yahoo.ycsb.OneMeasurement#measure(int)
      */
-    public synchronized void measure(int latency) {
+    public void measure(int latency) {
         if (latency >= _buckets) {
             histogramoverflow++;
         } else {
@@ -115,6 +167,9 @@ public class OneMeasurementHistogram extends OneMeasurement {
     public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
         exporter.write(getName(), "Operations", operations);
         exporter.write(getName(), "AverageLatency(us)", 100L * totallatency / operations / 100.0);
+        if (keys > 0) {
+            exporter.write(getName(), "AmortizedLatencyPerKey(us)", (double) totallatency / keys);
+        }
         exporter.write(getName(), "MinLatency(us)", min);
         exporter.write(getName(), "MaxLatency(us)", max);
 
@@ -145,7 +200,27 @@ public class OneMeasurementHistogram extends OneMeasurement {
     }
 
     @Override
-    public String getSummary() {
+    public long getOperations() {
+        return operations;
+    }
+
+    /**
+     * Latencies beyond the last bucket are reported as the maximum latency.
+     */
+    @Override
+    public double getPercentileLatency(double percentile) {
+        int opcounter = 0;
+        for (int i = 0; i < _buckets; i++) {
+            opcounter += histogram[i];
+            if ((double) opcounter / operations >= percentile / 100.0) {
+                return i;
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public synchronized String getSummary() {
         if (windowoperations == 0) {
             return "";
         }
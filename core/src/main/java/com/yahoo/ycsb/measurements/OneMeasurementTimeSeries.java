@@ -4,28 +4,23 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
 import java.text.DecimalFormat;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Properties;
-import java.util.Vector;
-
-class SeriesUnit {
-    /**
-     * @param time
-     * @param average
-     */
-    public SeriesUnit(long time, double average) {
-        this.time = time;
-        this.average = average;
-    }
-
-    public long time;
-    public double average;
-}
+import java.util.TreeMap;
 
 /**
- * A time series measurement of a metric, such as READ LATENCY.
+ * A time series measurement of a metric, such as READ LATENCY. Operations are split into units of the granularity
+ * by the time they were measured at, and each unit keeps a histogram of its own (see
+ * {@link OneMeasurementHdrHistogram}, whose properties apply to it as well), so the measurements of many threads
+ * can be merged, and each unit reports its throughput and latency percentiles.
+ *
+ * Units are aligned to multiples of the granularity since the epoch, so the same unit of every thread covers the
+ * same time. They are exported by their start in milliseconds since the first unit.
  */
 public class OneMeasurementTimeSeries extends OneMeasurement {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Granularity for time series; measurements will be averaged in chunks of this granularity. Units are milliseconds.
      */
@@ -33,121 +28,221 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
 
     public static final String GRANULARITY_DEFAULT = "1000";
 
-    int _granularity;
-    Vector<SeriesUnit> _measurements;
+    /**
+     * The percentiles to export for each unit, separated by commas.
+     */
+    public static final String PERCENTILES = "timeseries.percentiles";
+
+    public static final String PERCENTILES_DEFAULT = "50,99,99.9";
 
-    long start = -1;
-    long currentunit = -1;
-    int count = 0;
-    int sum = 0;
-    int operations = 0;
-    long totallatency = 0;
+    final int _granularity;
+    final int subBucketBits;
 
-    //keep a windowed version of these stats for printing status
-    int windowoperations = 0;
-    long windowtotallatency = 0;
+    //the percentiles to export over all units, and for each
+    final double[] totalpercentiles;
+    final double[] percentiles;
 
-    int min = -1;
-    int max = -1;
+    //the histogram of each unit, by its start in milliseconds divided by the granularity
+    TreeMap<Long, OneMeasurementHdrHistogram> units;
 
-    private HashMap<Integer, int[]> returncodes;
+    //the unit measured into last
+    long currentunit = -1;
+    OneMeasurementHdrHistogram current;
+
+    //keep a windowed version of these stats for printing status
+    long windowoperations;
+    long windowtotalnanos;
 
     public OneMeasurementTimeSeries(String name, Properties props) {
         super(name);
         _granularity = Integer.parseInt(props.getProperty(GRANULARITY, GRANULARITY_DEFAULT));
-        _measurements = new Vector<SeriesUnit>();
-        returncodes = new HashMap<Integer, int[]>();
+        subBucketBits = OneMeasurementHdrHistogram.subBucketBits(Integer.parseInt(props.getProperty(OneMeasurementHdrHistogram.DIGITS, OneMeasurementHdrHistogram.DIGITS_DEFAULT)));
+        totalpercentiles = OneMeasurementHdrHistogram.parsePercentiles(props.getProperty(OneMeasurementHdrHistogram.PERCENTILES, OneMeasurementHdrHistogram.PERCENTILES_DEFAULT));
+        percentiles = OneMeasurementHdrHistogram.parsePercentiles(props.getProperty(PERCENTILES, PERCENTILES_DEFAULT));
+        units = new TreeMap<Long, OneMeasurementHdrHistogram>();
     }
 
-    void checkEndOfUnit(boolean forceend) {
-        long now = System.currentTimeMillis();
-
-        if (start < 0) {
-            currentunit = 0;
-            start = now;
-        }
-
-        long unit = ((now - start) / _granularity) * _granularity;
-
-        if ((unit > currentunit) || (forceend)) {
-            double avg = ((double) sum) / ((double) count);
-            _measurements.add(new SeriesUnit(currentunit, avg));
-
+    /**
+     * @return the histogram of the unit the given time falls in
+     */
+    OneMeasurementHdrHistogram unit(long timemillis) {
+        long unit = timemillis / _granularity;
+        if (unit != currentunit) {
+            current = units.get(unit);
+            if (current == null) {
+                units.put(unit, current = newHistogram());
+            }
             currentunit = unit;
-
-            count = 0;
-            sum = 0;
         }
+        return current;
+    }
+
+    OneMeasurementHdrHistogram newHistogram() {
+        return new OneMeasurementHdrHistogram(getName(), subBucketBits, totalpercentiles);
     }
 
     @Override
     public void measure(int latency) {
-        checkEndOfUnit(false);
+        measureNanos(latency * 1000L);
+    }
 
-        count++;
-        sum += latency;
-        totallatency += latency;
-        operations++;
-        windowoperations++;
-        windowtotallatency += latency;
+    @Override
+    public void measureNanos(long nanos) {
+        measureAt(System.currentTimeMillis(), nanos);
+    }
 
-        if (latency > max) {
-            max = latency;
+    void measureAt(long timemillis, long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
         }
+        unit(timemillis).measureNanos(nanos);
+        windowoperations++;
+        windowtotalnanos += nanos;
+    }
 
-        if ((latency < min) || (min < 0)) {
-            min = latency;
-        }
+    @Override
+    public void reportReturnCode(int code) {
+        unit(System.currentTimeMillis()).reportReturnCode(code);
     }
 
+    /**
+     * @return the histogram of all units together
+     */
+    synchronized OneMeasurementHdrHistogram total() {
+        OneMeasurementHdrHistogram total = newHistogram();
+        for (OneMeasurementHdrHistogram h : units.values()) {
+            total.merge(h);
+        }
+        total.keys = keys;
+        return total;
+    }
 
     @Override
     public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
-        checkEndOfUnit(true);
-
-        exporter.write(getName(), "Operations", operations);
-        exporter.write(getName(), "AverageLatency(us)", 100L * totallatency / operations / 100.0);
-        exporter.write(getName(), "MinLatency(us)", min);
-        exporter.write(getName(), "MaxLatency(us)", max);
-
-        //TODO: 95th and 99th percentile latency
-
-        for (Integer I : returncodes.keySet()) {
-            int[] val = returncodes.get(I);
-            exporter.write(getName(), "Return=" + I, val[0]);
+        total().exportMeasurements(exporter);
+
+        synchronized (this) {
+            if (units.isEmpty()) {
+                return;
+            }
+            long first = units.firstKey();
+            DecimalFormat d = new DecimalFormat("#.###");
+            for (Map.Entry<Long, OneMeasurementHdrHistogram> entry : units.entrySet()) {
+                OneMeasurementHdrHistogram h = entry.getValue();
+                if (h.operations == 0) {
+                    continue;
+                }
+                //the unit on its own holds its average latency
+                String time = Long.toString((entry.getKey() - first) * _granularity);
+                exporter.write(getName(), time, h.totalnanos / h.operations / 1e3);
+                exporter.write(getName(), time + " Throughput(ops/sec)", h.operations * 1000.0 / _granularity);
+                for (double percentile : percentiles) {
+                    exporter.write(getName(), time + " " + d.format(percentile) + "thPercentileLatency(us)", h.getPercentileNanos(percentile) / 1e3);
+                }
+                exporter.write(getName(), time + " MaxLatency(us)", h.max / 1e3);
+            }
         }
+    }
 
-        for (SeriesUnit unit : _measurements) {
-            exporter.write(getName(), Long.toString(unit.time), unit.average);
+    @Override
+    public synchronized String getSummary() {
+        if (windowoperations == 0) {
+            return "";
         }
+        DecimalFormat d = new DecimalFormat("#.##");
+        double report = windowtotalnanos / 1e3 / windowoperations;
+        windowtotalnanos = 0;
+        windowoperations = 0;
+        return "[" + getName() + " AverageLatency(us)=" + d.format(report) + "]";
     }
 
     @Override
-    public void reportReturnCode(int code) {
-        Integer Icode = code;
-        if (!returncodes.containsKey(Icode)) {
-            int[] val = new int[1];
-            val[0] = 0;
-            returncodes.put(Icode, val);
+    public synchronized long getOperations() {
+        long operations = 0;
+        for (OneMeasurementHdrHistogram h : units.values()) {
+            operations += h.operations;
         }
-        returncodes.get(Icode)[0]++;
+        return operations;
+    }
 
+    @Override
+    public double getPercentileLatency(double percentile) {
+        return total().getPercentileLatency(percentile);
     }
 
     @Override
-    public String getSummary() {
-        if (windowoperations == 0) {
-            return "";
+    public synchronized OneMeasurementTimeSeries clone() {
+        OneMeasurementTimeSeries omts = (OneMeasurementTimeSeries) super.clone();
+        omts.units = new TreeMap<Long, OneMeasurementHdrHistogram>();
+        for (Map.Entry<Long, OneMeasurementHdrHistogram> entry : units.entrySet()) {
+            omts.units.put(entry.getKey(), entry.getValue().clone());
         }
-        DecimalFormat d = new DecimalFormat("#.##");
-        double report = ((double) windowtotallatency) / ((double) windowoperations);
-        windowtotallatency = 0;
+        omts.currentunit = -1;
+        omts.current = null;
+        return omts;
+    }
+
+    @Override
+    public synchronized void merge(OneMeasurement value) {
+        OneMeasurementTimeSeries omts = (OneMeasurementTimeSeries) value;
+        assert _granularity == omts._granularity && subBucketBits == omts.subBucketBits;
+        for (Map.Entry<Long, OneMeasurementHdrHistogram> entry : omts.units.entrySet()) {
+            OneMeasurementHdrHistogram h = units.get(entry.getKey());
+            if (h == null) {
+                units.put(entry.getKey(), entry.getValue().clone());
+            } else {
+                h.merge(entry.getValue());
+            }
+        }
+        windowoperations += omts.windowoperations;
+        windowtotalnanos += omts.windowtotalnanos;
+        keys += omts.keys;
+    }
+
+    /**
+     * Units are allocated as time goes by anyway, so they are dropped rather than reset.
+     */
+    @Override
+    public synchronized void reset() {
+        units.clear();
+        currentunit = -1;
+        current = null;
         windowoperations = 0;
-        return "[" + getName() + " AverageLatency(us)=" + d.format(report) + "]";
+        windowtotalnanos = 0;
+        keys = 0;
     }
 
+    /**
+     * Units measured into in both are split as {@link OneMeasurementHdrHistogram#since(OneMeasurement)} does; those
+     * left with nothing in them are dropped.
+     */
     @Override
-    public void merge(OneMeasurement value) {
-        throw new UnsupportedOperationException();
+    public synchronized OneMeasurementTimeSeries since(OneMeasurement earlier) {
+        OneMeasurementTimeSeries omts = clone();
+        OneMeasurementTimeSeries before = (OneMeasurementTimeSeries) earlier;
+        omts.keys -= before.keys;
+        for (Iterator<Map.Entry<Long, OneMeasurementHdrHistogram>> i = omts.units.entrySet().iterator(); i.hasNext(); ) {
+            Map.Entry<Long, OneMeasurementHdrHistogram> entry = i.next();
+            OneMeasurementHdrHistogram h = before.units.get(entry.getKey());
+            if (h == null) {
+                continue;
+            }
+            h = entry.getValue().since(h);
+            if (h.operations == 0 && !hasReturnCodes(h)) {
+                i.remove();
+            } else {
+                entry.setValue(h);
+            }
+        }
+        return omts;
+    }
+
+    static boolean hasReturnCodes(OneMeasurementHdrHistogram h) {
+        for (int[] count : h.returncodes.values()) {
+            if (count[0] != 0) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,64 @@
+package com.yahoo.ycsb.measurements;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Lets one writer thread record into whichever of two buffers is active while a reader flips them, so that the
+ * reader gets the inactive one to itself once the writer is known to be done with it.
+ *
+ * The writer takes no lock and never retries: entering a critical section is one volatile store of its own
+ * counter followed by a volatile read of the phase, and leaving it is an ordered store. The reader flips the phase
+ * and then waits for the writer to leave any critical section it entered before the flip. Since the writer
+ * publishes its counter before it reads the phase, a writer the reader does not wait for is bound to see the new
+ * phase.
+ *
+ * Flips must not run concurrently with each other.
+ */
+class SingleWriterPhaser
+{
+	private static final AtomicLongFieldUpdater<SingleWriterPhaser> EXITED=AtomicLongFieldUpdater.newUpdater(SingleWriterPhaser.class,"_exited");
+
+	//written by the writer only
+	private long _sections;
+	private volatile long _entered;
+	private volatile long _exited;
+
+	//written by the reader only
+	private volatile int _phase;
+
+	/**
+	 * Enter a critical section. Only the writer may call this.
+	 *
+	 * @return the active buffer, 0 or 1, to write to until {@link #exit()}
+	 */
+	int enter()
+	{
+		_entered=++_sections;
+		return _phase;
+	}
+
+	/**
+	 * Leave the critical section entered last. Only the writer may call this.
+	 */
+	void exit()
+	{
+		EXITED.lazySet(this,_sections);
+	}
+
+	/**
+	 * Make the inactive buffer the active one, and wait until the writer is done with the one that was active.
+	 *
+	 * @return the buffer that was active, 0 or 1, which the caller has to itself until the next flip
+	 */
+	int flip()
+	{
+		int previous=_phase;
+		_phase=1-previous;
+		long entered=_entered;
+		while (_exited<entered)
+		{
+			Thread.yield();
+		}
+		return previous;
+	}
+}
@@ -0,0 +1,198 @@
+package com.yahoo.ycsb.pacing;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import com.yahoo.ycsb.WorkloadException;
+
+/**
+ * A target rate that changes over the course of a run, in total operations per second over all client threads.
+ * A profile is shared by all client threads, and is immutable once started.
+ *
+ * Properties to control the load profile:
+ * <UL>
+ * <LI><b>loadprofile</b>: "ramp", "step", "sine" or "trace", or unset for the constant "target" rate
+ * <LI><b>loadprofile.from</b>, <b>loadprofile.to</b>, <b>loadprofile.duration</b>: for "ramp", the rate goes linearly from "from" to "to" over "duration" seconds, then stays at "to" (default: 0, target, 60)
+ * <LI><b>loadprofile.steps</b>: for "step", a comma separated list of second:rate pairs, e.g. "0:1000,60:5000,120:2000"; each rate holds until the next step
+ * <LI><b>loadprofile.mean</b>, <b>loadprofile.amplitude</b>, <b>loadprofile.period</b>: for "sine", the rate is mean+amplitude*sin(2*pi*t/period) with the period in seconds (default: target, half the mean, 60)
+ * <LI><b>loadprofile.file</b>: for "trace", a file with a rate per line for each second in turn, or "second,rate" lines; lines starting with # are skipped
+ * <LI><b>loadprofile.interval</b>: how often to record the achieved throughput, in milliseconds (default: 1000)
+ * </ul>
+ */
+public abstract class LoadProfile
+{
+	public static final String PROFILE_PROPERTY="loadprofile";
+
+	public static final String FROM_PROPERTY="loadprofile.from";
+
+	public static final String FROM_PROPERTY_DEFAULT="0";
+
+	public static final String TO_PROPERTY="loadprofile.to";
+
+	public static final String DURATION_PROPERTY="loadprofile.duration";
+
+	public static final String DURATION_PROPERTY_DEFAULT="60";
+
+	public static final String STEPS_PROPERTY="loadprofile.steps";
+
+	public static final String MEAN_PROPERTY="loadprofile.mean";
+
+	public static final String AMPLITUDE_PROPERTY="loadprofile.amplitude";
+
+	public static final String PERIOD_PROPERTY="loadprofile.period";
+
+	public static final String PERIOD_PROPERTY_DEFAULT="60";
+
+	public static final String FILE_PROPERTY="loadprofile.file";
+
+	public static final String INTERVAL_PROPERTY="loadprofile.interval";
+
+	public static final String INTERVAL_PROPERTY_DEFAULT="1000";
+
+	/**
+	 * Create the load profile configured by the properties.
+	 *
+	 * @return the profile, or null if none is configured
+	 */
+	public static LoadProfile newLoadProfile(Properties p) throws WorkloadException
+	{
+		String profile=p.getProperty(PROFILE_PROPERTY);
+		if (profile==null)
+		{
+			return null;
+		}
+
+		String target=p.getProperty("target","0");
+		try
+		{
+			if (profile.compareTo("ramp")==0)
+			{
+				return new RampLoadProfile(Double.parseDouble(p.getProperty(FROM_PROPERTY,FROM_PROPERTY_DEFAULT)),
+						Double.parseDouble(p.getProperty(TO_PROPERTY,target)),
+						Double.parseDouble(p.getProperty(DURATION_PROPERTY,DURATION_PROPERTY_DEFAULT)));
+			}
+			else if (profile.compareTo("step")==0)
+			{
+				String steps=p.getProperty(STEPS_PROPERTY);
+				if (steps==null)
+				{
+					throw new WorkloadException("Missing property "+STEPS_PROPERTY+" for the step load profile");
+				}
+				List<double[]> points=new ArrayList<double[]>();
+				for (String step : steps.split(","))
+				{
+					String[] pair=step.trim().split(":");
+					if (pair.length!=2)
+					{
+						throw new WorkloadException("Invalid load profile step \""+step+"\", expected second:rate");
+					}
+					points.add(new double[] {Double.parseDouble(pair[0]),Double.parseDouble(pair[1])});
+				}
+				return new StepLoadProfile(points);
+			}
+			else if (profile.compareTo("sine")==0)
+			{
+				double mean=Double.parseDouble(p.getProperty(MEAN_PROPERTY,target));
+				return new SineLoadProfile(mean,
+						Double.parseDouble(p.getProperty(AMPLITUDE_PROPERTY,Double.toString(mean/2))),
+						Double.parseDouble(p.getProperty(PERIOD_PROPERTY,PERIOD_PROPERTY_DEFAULT)));
+			}
+			else if (profile.compareTo("trace")==0)
+			{
+				String file=p.getProperty(FILE_PROPERTY);
+				if (file==null)
+				{
+					throw new WorkloadException("Missing property "+FILE_PROPERTY+" for the trace load profile");
+				}
+				return new StepLoadProfile(readTrace(file));
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			throw new WorkloadException("Invalid number in the "+profile+" load profile: "+e.getMessage());
+		}
+		throw new WorkloadException("Unknown load profile \""+profile+"\"");
+	}
+
+	/**
+	 * Read a rate-per-second trace.
+	 */
+	static List<double[]> readTrace(String file) throws WorkloadException
+	{
+		List<double[]> points=new ArrayList<double[]>();
+		BufferedReader in=null;
+		try
+		{
+			in=new BufferedReader(new FileReader(file));
+			String line;
+			while ((line=in.readLine())!=null)
+			{
+				line=line.trim();
+				if (line.length()==0 || line.startsWith("#"))
+				{
+					continue;
+				}
+				String[] fields=line.split(",");
+				if (fields.length==1)
+				{
+					points.add(new double[] {points.size(),Double.parseDouble(fields[0].trim())});
+				}
+				else
+				{
+					points.add(new double[] {Double.parseDouble(fields[0].trim()),Double.parseDouble(fields[1].trim())});
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			throw new WorkloadException("Could not read load profile trace "+file,e);
+		}
+		finally
+		{
+			if (in!=null)
+			{
+				try
+				{
+					in.close();
+				}
+				catch (IOException e)
+				{
+				}
+			}
+		}
+		if (points.isEmpty())
+		{
+			throw new WorkloadException("Load profile trace "+file+" is empty");
+		}
+		return points;
+	}
+
+	long _starttime;
+
+	/**
+	 * Start the profile; time zero of the profile is the given time.
+	 */
+	public void start(long starttimenanos)
+	{
+		_starttime=starttimenanos;
+	}
+
+	/**
+	 * @param timenanos a System.nanoTime() after the profile was started
+	 * @return the target rate at the given time, in operations per second
+	 */
+	public double getRate(long timenanos)
+	{
+		return getRateAt((timenanos-_starttime)/1e9);
+	}
+
+	/**
+	 * @param seconds the time since the start of the profile
+	 * @return the target rate at that time, in operations per second
+	 */
+	public abstract double getRateAt(double seconds);
+}
@@ -0,0 +1,190 @@
+package com.yahoo.ycsb.pacing;
+
+import java.util.Properties;
+
+import com.yahoo.ycsb.WorkloadException;
+
+/**
+ * Paces the operations of one client thread to a target rate, with nanosecond resolution. The pacer keeps a
+ * schedule of intended start times: each call to next() returns the intended start time of the next
+ * operation and advances the schedule by one inter-arrival gap, whose distribution depends on the subclass.
+ * 
+ * When the client falls behind schedule, the intended start times are already in the past and operations
+ * are issued back-to-back until it catches up. The "pacing.burst" property bounds how many operations may
+ * be issued that way; beyond it, missed operations are dropped from the schedule instead.
+ * 
+ * The target rate may vary over time by following a {@link LoadProfile}, of which each client thread takes an
+ * equal share.
+ * 
+ * A pacer belongs to a single client thread and is not thread safe.
+ * 
+ * Properties to control pacing:
+ * <UL>
+ * <LI><b>pacing.arrival</b>: the inter-arrival distribution, "tokenbucket" for evenly spaced operations or "poisson" for exponentially distributed gaps (default: tokenbucket)
+ * <LI><b>pacing.burst</b>: the most operations that may be issued back-to-back to catch up, or 0 for no limit (default: 0)
+ * <LI><b>pacing.wait</b>: how to wait for the next operation, "park", "yield" or "spin" (default: park)
+ * </ul>
+ */
+public abstract class Pacer
+{
+	public static final String ARRIVAL_PROPERTY="pacing.arrival";
+
+	public static final String ARRIVAL_PROPERTY_DEFAULT="tokenbucket";
+
+	public static final String BURST_PROPERTY="pacing.burst";
+
+	public static final String BURST_PROPERTY_DEFAULT="0";
+
+	public static final String WAIT_PROPERTY="pacing.wait";
+
+	public static final String WAIT_PROPERTY_DEFAULT="park";
+
+	/**
+	 * Create a pacer for one client thread, configured from the properties.
+	 * 
+	 * @param p the properties defining the experiment
+	 * @param opspersecond the target rate of this client thread
+	 */
+	public static Pacer newPacer(Properties p, double opspersecond) throws WorkloadException
+	{
+		String arrival=p.getProperty(ARRIVAL_PROPERTY,ARRIVAL_PROPERTY_DEFAULT);
+		Pacer pacer;
+		if (arrival.compareTo("tokenbucket")==0)
+		{
+			pacer=new TokenBucketPacer(opspersecond);
+		}
+		else if (arrival.compareTo("poisson")==0)
+		{
+			pacer=new PoissonPacer(opspersecond);
+		}
+		else
+		{
+			throw new WorkloadException("Unknown pacing arrival distribution \""+arrival+"\"");
+		}
+
+		String wait=p.getProperty(WAIT_PROPERTY,WAIT_PROPERTY_DEFAULT);
+		try
+		{
+			pacer._wait=WaitStrategy.valueOf(wait.toUpperCase());
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new WorkloadException("Unknown pacing wait strategy \""+wait+"\"");
+		}
+
+		pacer._burst=Integer.parseInt(p.getProperty(BURST_PROPERTY,BURST_PROPERTY_DEFAULT));
+		pacer.setIntervalNanos(pacer._intervalnanos);
+		return pacer;
+	}
+
+	/**
+	 * The longest time between operations when following a load profile, so a client whose share of the
+	 * rate drops to (nearly) zero does not stop for the rest of the run.
+	 */
+	static final double MAX_PROFILE_INTERVAL_NANOS=1e9;
+
+	/**
+	 * The mean time between operations.
+	 */
+	protected double _intervalnanos;
+
+	/**
+	 * How far behind schedule the client may fall before missed operations are dropped.
+	 */
+	double _tolerance;
+
+	int _burst;
+
+	WaitStrategy _wait=WaitStrategy.PARK;
+
+	LoadProfile _profile;
+
+	//the fraction of the profile's rate this client does
+	double _share;
+
+	long _starttime;
+
+	//kept as a double offset from the start so fractional intervals don't drift
+	double _next;
+
+	protected Pacer(double opspersecond)
+	{
+		_intervalnanos=1e9/opspersecond;
+	}
+
+	/**
+	 * Follow the given load profile instead of a constant rate.
+	 * 
+	 * @param share the fraction of the profile's rate this client should do
+	 */
+	public void setLoadProfile(LoadProfile profile, double share)
+	{
+		_profile=profile;
+		_share=share;
+		followProfile(profile.getRateAt(0));
+	}
+
+	void followProfile(double rate)
+	{
+		rate*=_share;
+		setIntervalNanos(rate>0 ? Math.min(1e9/rate,MAX_PROFILE_INTERVAL_NANOS) : MAX_PROFILE_INTERVAL_NANOS);
+	}
+
+	void setIntervalNanos(double intervalnanos)
+	{
+		_intervalnanos=intervalnanos;
+		_tolerance=_burst>0 ? (_burst-1)*_intervalnanos : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Start the schedule; the first operation is intended to start at the given time.
+	 */
+	public void start(long starttimenanos)
+	{
+		_starttime=starttimenanos;
+		_next=0;
+	}
+
+	/**
+	 * Return the intended start time of the next operation and advance the schedule.
+	 * 
+	 * @param nownanos the current System.nanoTime()
+	 * @return the intended start time, which is in the past if the client is behind schedule
+	 */
+	public long next(long nownanos)
+	{
+		double now=nownanos-_starttime;
+		if (now-_next>_tolerance)
+		{
+			_next=now-_tolerance;
+		}
+		if (_profile!=null)
+		{
+			followProfile(_profile.getRate(_starttime+(long)_next));
+		}
+		double intended=_next;
+		_next+=nextIntervalNanos();
+		return _starttime+(long)intended;
+	}
+
+	/**
+	 * Wait until the given time using the configured wait strategy.
+	 */
+	public void waitUntil(long deadlinenanos)
+	{
+		_wait.waitUntil(deadlinenanos);
+	}
+
+	/**
+	 * @return the current mean time between operations in nanoseconds.
+	 */
+	public double getIntervalNanos()
+	{
+		return _intervalnanos;
+	}
+
+	/**
+	 * @return the gap between the operation just scheduled and the next one.
+	 */
+	protected abstract double nextIntervalNanos();
+}
@@ -0,0 +1,22 @@
+package com.yahoo.ycsb.pacing;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Issues operations as a Poisson process at the target rate, i.e. with exponentially distributed gaps. This
+ * models many independent users better than evenly spaced operations, and since the superposition of Poisson
+ * processes is again a Poisson process, the combined arrivals of all client threads are Poisson too.
+ */
+public class PoissonPacer extends Pacer
+{
+	public PoissonPacer(double opspersecond)
+	{
+		super(opspersecond);
+	}
+
+	@Override
+	protected double nextIntervalNanos()
+	{
+		return -Math.log(1.0-Utils.random().nextDouble())*_intervalnanos;
+	}
+}
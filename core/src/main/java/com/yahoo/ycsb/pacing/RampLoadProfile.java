@@ -0,0 +1,33 @@
+package com.yahoo.ycsb.pacing;
+
+/**
+ * Changes the rate linearly from one value to another over a given time, then holds it.
+ */
+public class RampLoadProfile extends LoadProfile
+{
+	double _from;
+	double _to;
+	double _duration;
+
+	/**
+	 * @param from the rate at the start, in operations per second
+	 * @param to the rate at the end of the ramp and after it
+	 * @param duration the length of the ramp in seconds
+	 */
+	public RampLoadProfile(double from, double to, double duration)
+	{
+		_from=from;
+		_to=to;
+		_duration=duration;
+	}
+
+	@Override
+	public double getRateAt(double seconds)
+	{
+		if (seconds>=_duration)
+		{
+			return _to;
+		}
+		return _from+(_to-_from)*Math.max(seconds,0)/_duration;
+	}
+}
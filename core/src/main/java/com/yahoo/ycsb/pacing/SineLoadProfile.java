@@ -0,0 +1,29 @@
+package com.yahoo.ycsb.pacing;
+
+/**
+ * Varies the rate sinusoidally around a mean, e.g. to model diurnal traffic in compressed time.
+ */
+public class SineLoadProfile extends LoadProfile
+{
+	double _mean;
+	double _amplitude;
+	double _period;
+
+	/**
+	 * @param mean the mean rate, in operations per second
+	 * @param amplitude how far the rate swings above and below the mean
+	 * @param period the length of one cycle in seconds
+	 */
+	public SineLoadProfile(double mean, double amplitude, double period)
+	{
+		_mean=mean;
+		_amplitude=amplitude;
+		_period=period;
+	}
+
+	@Override
+	public double getRateAt(double seconds)
+	{
+		return Math.max(0,_mean+_amplitude*Math.sin(2*Math.PI*seconds/_period));
+	}
+}
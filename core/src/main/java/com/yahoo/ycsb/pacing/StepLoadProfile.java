@@ -0,0 +1,54 @@
+package com.yahoo.ycsb.pacing;
+
+import java.util.List;
+
+import com.yahoo.ycsb.WorkloadException;
+
+/**
+ * Holds each rate of a schedule from its start time until the next one starts; the last rate holds until the end
+ * of the run. Used both for explicit step schedules and for replaying rate-per-second traces.
+ */
+public class StepLoadProfile extends LoadProfile
+{
+	double[] _times;
+	double[] _rates;
+
+	/**
+	 * @param points the steps as {second, rate} pairs, in increasing order of time
+	 */
+	public StepLoadProfile(List<double[]> points) throws WorkloadException
+	{
+		_times=new double[points.size()];
+		_rates=new double[points.size()];
+		for (int i=0; i<_times.length; i++)
+		{
+			_times[i]=points.get(i)[0];
+			_rates[i]=points.get(i)[1];
+			if (i>0 && _times[i]<=_times[i-1])
+			{
+				throw new WorkloadException("Load profile steps must be in increasing order of time, but "+_times[i]+" follows "+_times[i-1]);
+			}
+		}
+	}
+
+	@Override
+	public double getRateAt(double seconds)
+	{
+		//binary search for the last step starting at or before the given time
+		int lo=0;
+		int hi=_times.length-1;
+		while (lo<hi)
+		{
+			int mid=(lo+hi+1)>>>1;
+			if (_times[mid]<=seconds)
+			{
+				lo=mid;
+			}
+			else
+			{
+				hi=mid-1;
+			}
+		}
+		return _rates[lo];
+	}
+}
@@ -0,0 +1,19 @@
+package com.yahoo.ycsb.pacing;
+
+/**
+ * Spaces operations evenly at the target rate. Together with "pacing.burst" this is a token bucket: tokens
+ * arrive at the target rate and the bucket holds "pacing.burst" of them, or any number if unset.
+ */
+public class TokenBucketPacer extends Pacer
+{
+	public TokenBucketPacer(double opspersecond)
+	{
+		super(opspersecond);
+	}
+
+	@Override
+	protected double nextIntervalNanos()
+	{
+		return _intervalnanos;
+	}
+}
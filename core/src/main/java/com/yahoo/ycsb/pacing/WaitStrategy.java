@@ -0,0 +1,62 @@
+package com.yahoo.ycsb.pacing;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a client thread waits for the start time of its next operation. Parking gives the CPU away but
+ * typically wakes up tens of microseconds late; spinning is exact but burns a core per client thread;
+ * yielding sits in between.
+ */
+public enum WaitStrategy
+{
+	/**
+	 * Park the thread for the remaining time.
+	 */
+	PARK
+	{
+		@Override
+		public void waitUntil(long deadlineNanos)
+		{
+			long now;
+			while ((now=System.nanoTime())-deadlineNanos<0)
+			{
+				LockSupport.parkNanos(deadlineNanos-now);
+			}
+		}
+	},
+
+	/**
+	 * Yield the processor until the deadline.
+	 */
+	YIELD
+	{
+		@Override
+		public void waitUntil(long deadlineNanos)
+		{
+			while (System.nanoTime()-deadlineNanos<0)
+			{
+				Thread.yield();
+			}
+		}
+	},
+
+	/**
+	 * Busy-spin until the deadline.
+	 */
+	SPIN
+	{
+		@Override
+		public void waitUntil(long deadlineNanos)
+		{
+			while (System.nanoTime()-deadlineNanos<0)
+			{
+				//spin
+			}
+		}
+	};
+
+	/**
+	 * Wait until System.nanoTime() reaches the deadline. Returns immediately if it already has.
+	 */
+	public abstract void waitUntil(long deadlineNanos);
+}
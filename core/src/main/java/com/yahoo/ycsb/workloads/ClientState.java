@@ -0,0 +1,27 @@
+package com.yahoo.ycsb.workloads;
+
+/**
+ * What CoreWorkload keeps for each client thread.
+ */
+class ClientState
+{
+	/**
+	 * The ring of pre-generated transactions, or null if they are generated inline.
+	 */
+	OperationRing ring;
+
+	/**
+	 * The next key number of this thread's slice of the keys to insert, if the load is partitioned.
+	 */
+	long next;
+
+	/**
+	 * The end of this thread's slice, exclusive.
+	 */
+	long end;
+
+	/**
+	 * The key numbers of the slice in the order to insert them, after hashing, if they are inserted sorted.
+	 */
+	long[] keys;
+}
@@ -3,9 +3,8 @@ package com.yahoo.ycsb.workloads;
 import java.util.Properties;
 import com.yahoo.ycsb.*;
 import com.yahoo.ycsb.generator.CounterGenerator;
-import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.generator.AliasGenerator;
 import com.yahoo.ycsb.generator.ExponentialGenerator;
-import com.yahoo.ycsb.generator.Generator;
 import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
 import com.yahoo.ycsb.generator.HotspotIntegerGenerator;
 import com.yahoo.ycsb.generator.HistogramGenerator;
@@ -17,8 +16,11 @@ import com.yahoo.ycsb.generator.ZipfianGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 /**
@@ -36,11 +38,22 @@ import java.util.Vector;
  * <LI><b>updateproportion</b>: what proportion of operations should be updates (default: 0.05)
  * <LI><b>insertproportion</b>: what proportion of operations should be inserts (default: 0)
  * <LI><b>scanproportion</b>: what proportion of operations should be scans (default: 0)
+ * <LI><b>multireadproportion</b>: what proportion of operations should read many keys at once (default: 0)
+ * <LI><b>multiupdateproportion</b>: what proportion of operations should update many keys at once (default: 0)
+ * <LI><b>maxmultikeys</b>: for multi-key operations, what is the maximum number of keys (default: 10)
+ * <LI><b>multikeysdistribution</b>: for multi-key operations, what distribution should be used to choose the number of keys, between 1 and maxmultikeys - uniform, zipfian or constant (default: uniform)
  * <LI><b>readmodifywriteproportion</b>: what proportion of operations should be read a record, modify it, write it back (default: 0)
  * <LI><b>requestdistribution</b>: what distribution should be used to select the records to operate on - uniform, zipfian, hotspot, or latest (default: uniform)
  * <LI><b>maxscanlength</b>: for scans, what is the maximum number of records to scan (default: 1000)
  * <LI><b>scanlengthdistribution</b>: for scans, what distribution should be used to choose the number of records to scan, for each scan, between 1 and maxscanlength (default: uniform)
  * <LI><b>insertorder</b>: should records be inserted in order by key ("ordered"), or in hashed order ("hashed") (default: hashed)
+ * <LI><b>insertpartitioned</b>: should each client thread insert a contiguous slice of the records of its own, rather than all threads taking the next record from a shared counter (default: false)
+ * <LI><b>insertsorted</b>: with insertpartitioned, should each thread insert its slice sorted by key (default: false)
+ * <LI><b>pregenerate</b>: should transactions be generated ahead of time by producer threads, so the client threads only execute them (default: false)
+ * <LI><b>pregenerate.producers</b>: the number of producer threads (default: 1)
+ * <LI><b>pregenerate.buffer</b>: how many transactions to generate ahead for each client thread (default: 1024)
+ * <LI><b>trace.record</b>: a file to record the operations to, for replay with TraceWorkload (default: none)
+ * <LI><b>recordpooling</b>: should each client thread reuse its records and result containers from one operation to the next, rather than allocating new ones (default: false)
  * </ul> 
  */
 public class CoreWorkload extends Workload
@@ -180,6 +193,35 @@ public class CoreWorkload extends Workload
 	 * The default proportion of transactions that are scans.
 	 */
 	public static final String READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property for the proportion of transactions that read many keys with one DB.multiRead().
+	 */
+	public static final String MULTI_READ_PROPORTION_PROPERTY="multireadproportion";
+
+	public static final String MULTI_READ_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property for the proportion of transactions that update many keys with one DB.multiUpdate().
+	 */
+	public static final String MULTI_UPDATE_PROPORTION_PROPERTY="multiupdateproportion";
+
+	public static final String MULTI_UPDATE_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property for the maximum number of keys of a multi-key operation.
+	 */
+	public static final String MAX_MULTI_KEYS_PROPERTY="maxmultikeys";
+
+	public static final String MAX_MULTI_KEYS_PROPERTY_DEFAULT="10";
+
+	/**
+	 * The name of the property for the distribution of the number of keys of multi-key operations. Options are
+	 * "uniform", "zipfian" (favoring few keys) and "constant" (always maxmultikeys).
+	 */
+	public static final String MULTI_KEYS_DISTRIBUTION_PROPERTY="multikeysdistribution";
+
+	public static final String MULTI_KEYS_DISTRIBUTION_PROPERTY_DEFAULT="uniform";
 	
 	/**
 	 * The name of the property for the the distribution of requests across the keyspace. Options are "uniform", "zipfian" and "latest"
@@ -220,6 +262,24 @@ public class CoreWorkload extends Workload
 	 * Default insert order.
 	 */
 	public static final String INSERT_ORDER_PROPERTY_DEFAULT="hashed";
+
+	/**
+	 * Whether to split the records to insert into one contiguous slice per client thread, so the threads don't
+	 * contend on a shared counter and each thread's inserts follow a fixed order. The records left over when
+	 * the count doesn't divide evenly are not inserted, as the client threads only do that many inserts anyway.
+	 */
+	public static final String INSERT_PARTITIONED_PROPERTY="insertpartitioned";
+
+	public static final String INSERT_PARTITIONED_PROPERTY_DEFAULT="false";
+
+	/**
+	 * Whether each client thread inserts its slice in the order of the key names, which many stores can bulk
+	 * load much faster. Only applies with insertpartitioned; the key names of a slice are sorted when the
+	 * thread starts.
+	 */
+	public static final String INSERT_SORTED_PROPERTY="insertsorted";
+
+	public static final String INSERT_SORTED_PROPERTY_DEFAULT="false";
 	
 	/**
    * Percentage data items that constitute the hot set.
@@ -241,21 +301,81 @@ public class CoreWorkload extends Workload
    */
   public static final String HOTSPOT_OPN_FRACTION_DEFAULT = "0.8";
 	
+	/**
+	 * Whether to generate the transactions on producer threads, away from the client threads that execute them
+	 * and are measured. The keys, field choices and values of each transaction are all generated ahead of time,
+	 * into a ring of reusable slots for each client thread, except for the keys of inserts, which are only taken
+	 * when they are executed: no key is read before it is due to be inserted, and inserts left in the ring of a
+	 * thread that is done leave no gaps. Only applies to the transaction phase; the load phase always generates
+	 * its inserts inline so no keys are skipped. Not for asynchronous bindings, which are still using the values
+	 * and results of a slot when the call returns.
+	 */
+	public static final String PREGENERATE_PROPERTY="pregenerate";
+
+	public static final String PREGENERATE_PROPERTY_DEFAULT="false";
+
+	public static final String PREGENERATE_PRODUCERS_PROPERTY="pregenerate.producers";
+
+	public static final String PREGENERATE_PRODUCERS_PROPERTY_DEFAULT="1";
+
+	public static final String PREGENERATE_BUFFER_PROPERTY="pregenerate.buffer";
+
+	public static final String PREGENERATE_BUFFER_PROPERTY_DEFAULT="1024";
+
+	/**
+	 * A file to record every operation issued to, in the binary format of {@link TraceWriter}, so the run can be
+	 * replayed exactly with {@link TraceWorkload}. At most 32 fields can be recorded.
+	 */
+	public static final String TRACE_RECORD_PROPERTY="trace.record";
+
+	/**
+	 * Whether each client thread reuses its records, value buffers, field sets and result containers from one
+	 * operation to the next instead of allocating new ones, see {@link RecordPool}. Only for bindings that are done
+	 * with the values and results of an operation when it returns, so not with asynchronous bindings. Batch inserts
+	 * and multi-key operations, which hold many records at once, always allocate them.
+	 */
+	public static final String RECORD_POOLING_PROPERTY="recordpooling";
+
+	public static final String RECORD_POOLING_PROPERTY_DEFAULT="false";
+
 	IntegerGenerator keysequence;
 
-	DiscreteGenerator operationchooser;
+	//chooses an index into operations, or null if no operation has a proportion above 0
+	AliasGenerator operationchooser;
+	OperationType[] operations;
 
 	IntegerGenerator keychooser;
 
-	Generator fieldchooser;
+	IntegerGenerator fieldchooser;
 
 	CounterGenerator transactioninsertkeysequence;
 	
 	IntegerGenerator scanlength;
+
+	IntegerGenerator multikeys;
 	
 	boolean orderedinserts;
 
-	int recordcount;
+	long recordcount;
+
+	boolean partitionedinserts;
+	boolean sortedinserts;
+	long insertstart;
+	long insertcount;
+
+	OperationProducer[] producers;
+
+	//the number of rings handed to producers so far, to spread them evenly
+	int ringcount;
+
+	int pregeneratebuffer;
+
+	String[] fieldnames;
+
+	TraceWriter tracewriter;
+
+	//each client thread's records, or null if they are not pooled
+	ThreadLocal<RecordPool> pools;
 	
 	protected static IntegerGenerator getFieldLengthGenerator(Properties p) throws WorkloadException{
 		IntegerGenerator fieldlengthgenerator;
@@ -296,12 +416,17 @@ public class CoreWorkload extends Workload
 		double insertproportion=Double.parseDouble(p.getProperty(INSERT_PROPORTION_PROPERTY,INSERT_PROPORTION_PROPERTY_DEFAULT));
 		double scanproportion=Double.parseDouble(p.getProperty(SCAN_PROPORTION_PROPERTY,SCAN_PROPORTION_PROPERTY_DEFAULT));
 		double readmodifywriteproportion=Double.parseDouble(p.getProperty(READMODIFYWRITE_PROPORTION_PROPERTY,READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
-		recordcount=Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY));
+		double multireadproportion=Double.parseDouble(p.getProperty(MULTI_READ_PROPORTION_PROPERTY,MULTI_READ_PROPORTION_PROPERTY_DEFAULT));
+		double multiupdateproportion=Double.parseDouble(p.getProperty(MULTI_UPDATE_PROPORTION_PROPERTY,MULTI_UPDATE_PROPORTION_PROPERTY_DEFAULT));
+		recordcount=Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY));
 		String requestdistrib=p.getProperty(REQUEST_DISTRIBUTION_PROPERTY,REQUEST_DISTRIBUTION_PROPERTY_DEFAULT);
 		int maxscanlength=Integer.parseInt(p.getProperty(MAX_SCAN_LENGTH_PROPERTY,MAX_SCAN_LENGTH_PROPERTY_DEFAULT));
 		String scanlengthdistrib=p.getProperty(SCAN_LENGTH_DISTRIBUTION_PROPERTY,SCAN_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT);
 		
-		int insertstart=Integer.parseInt(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT));
+		insertstart=Long.parseLong(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT));
+		insertcount=Long.parseLong(p.getProperty(Client.INSERT_COUNT_PROPERTY,Long.toString(recordcount)));
+		partitionedinserts=Boolean.parseBoolean(p.getProperty(INSERT_PARTITIONED_PROPERTY,INSERT_PARTITIONED_PROPERTY_DEFAULT));
+		sortedinserts=Boolean.parseBoolean(p.getProperty(INSERT_SORTED_PROPERTY,INSERT_SORTED_PROPERTY_DEFAULT));
 		
 		readallfields=Boolean.parseBoolean(p.getProperty(READ_ALL_FIELDS_PROPERTY,READ_ALL_FIELDS_PROPERTY_DEFAULT));
 		writeallfields=Boolean.parseBoolean(p.getProperty(WRITE_ALL_FIELDS_PROPERTY,WRITE_ALL_FIELDS_PROPERTY_DEFAULT));
@@ -324,30 +449,24 @@ public class CoreWorkload extends Workload
 		}
 
 		keysequence=new CounterGenerator(insertstart);
-		operationchooser=new DiscreteGenerator();
-		if (readproportion>0)
-		{
-			operationchooser.addValue(readproportion,"READ");
-		}
-
-		if (updateproportion>0)
-		{
-			operationchooser.addValue(updateproportion,"UPDATE");
-		}
-
-		if (insertproportion>0)
-		{
-			operationchooser.addValue(insertproportion,"INSERT");
-		}
-		
-		if (scanproportion>0)
+		double[] proportions={readproportion,updateproportion,insertproportion,scanproportion,readmodifywriteproportion,multireadproportion,multiupdateproportion};
+		List<OperationType> types=new ArrayList<OperationType>();
+		for (OperationType type : OperationType.values())
 		{
-			operationchooser.addValue(scanproportion,"SCAN");
+			if (proportions[type.ordinal()]>0)
+			{
+				types.add(type);
+			}
 		}
-		
-		if (readmodifywriteproportion>0)
+		operations=types.toArray(new OperationType[types.size()]);
+		if (operations.length>0)
 		{
-			operationchooser.addValue(readmodifywriteproportion,"READMODIFYWRITE");
+			double[] weights=new double[operations.length];
+			for (int i=0; i<weights.length; i++)
+			{
+				weights[i]=proportions[operations[i].ordinal()];
+			}
+			operationchooser=new AliasGenerator(weights);
 		}
 
 		transactioninsertkeysequence=new CounterGenerator(recordcount);
@@ -364,8 +483,8 @@ public class CoreWorkload extends Workload
 			//plus the number of predicted keys as the total keyspace. then, if the generator picks a key that hasn't been inserted yet, will
 			//just ignore it and pick another key. this way, the size of the keyspace doesn't change from the perspective of the scrambled zipfian generator
 			
-			int opcount=Integer.parseInt(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
-			int expectednewkeys=(int)(((double)opcount)*insertproportion*2.0); //2 is fudge factor
+			long opcount=Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
+			long expectednewkeys=(long)(((double)opcount)*insertproportion*2.0); //2 is fudge factor
 			
 			keychooser=new ScrambledZipfianGenerator(recordcount+expectednewkeys);
 		}
@@ -401,14 +520,160 @@ public class CoreWorkload extends Workload
 		{
 			throw new WorkloadException("Distribution \""+scanlengthdistrib+"\" not allowed for scan length");
 		}
+
+		int maxmultikeys=Integer.parseInt(p.getProperty(MAX_MULTI_KEYS_PROPERTY,MAX_MULTI_KEYS_PROPERTY_DEFAULT));
+		String multikeysdistrib=p.getProperty(MULTI_KEYS_DISTRIBUTION_PROPERTY,MULTI_KEYS_DISTRIBUTION_PROPERTY_DEFAULT);
+		if (multikeysdistrib.compareTo("uniform")==0)
+		{
+			multikeys=new UniformIntegerGenerator(1,maxmultikeys);
+		}
+		else if (multikeysdistrib.compareTo("zipfian")==0)
+		{
+			multikeys=new ZipfianGenerator(1,maxmultikeys);
+		}
+		else if (multikeysdistrib.compareTo("constant")==0)
+		{
+			multikeys=new ConstantIntegerGenerator(maxmultikeys);
+		}
+		else
+		{
+			throw new WorkloadException("Distribution \""+multikeysdistrib+"\" not allowed for the number of keys");
+		}
+
+		fieldnames=new String[fieldcount];
+		for (int i=0; i<fieldcount; i++)
+		{
+			fieldnames[i]=("field"+i).intern();
+		}
+
+		if (Boolean.parseBoolean(p.getProperty(RECORD_POOLING_PROPERTY,RECORD_POOLING_PROPERTY_DEFAULT)))
+		{
+			pools=new ThreadLocal<RecordPool>()
+			{
+				@Override
+				protected RecordPool initialValue()
+				{
+					return new RecordPool(fieldnames);
+				}
+			};
+		}
+
+		String tracefile=p.getProperty(TRACE_RECORD_PROPERTY);
+		if (tracefile!=null)
+		{
+			if (fieldcount>TraceWriter.MAX_FIELDS)
+			{
+				throw new WorkloadException("Can't record a trace of more than "+TraceWriter.MAX_FIELDS+" fields");
+			}
+			try
+			{
+				tracewriter=new TraceWriter(tracefile);
+			}
+			catch (IOException e)
+			{
+				throw new WorkloadException("Could not create trace "+tracefile,e);
+			}
+		}
+
+		if (Boolean.parseBoolean(p.getProperty(PREGENERATE_PROPERTY,PREGENERATE_PROPERTY_DEFAULT)))
+		{
+			pregeneratebuffer=Integer.parseInt(p.getProperty(PREGENERATE_BUFFER_PROPERTY,PREGENERATE_BUFFER_PROPERTY_DEFAULT));
+			producers=new OperationProducer[Integer.parseInt(p.getProperty(PREGENERATE_PRODUCERS_PROPERTY,PREGENERATE_PRODUCERS_PROPERTY_DEFAULT))];
+			for (int i=0; i<producers.length; i++)
+			{
+				//producers get negative streams, to keep clear of the client threads
+				producers[i]=new OperationProducer(this,Utils.newRandom(-1-i));
+				producers[i].start();
+			}
+		}
+	}
+
+	/**
+	 * With pregenerated transactions, each client thread gets a ring of them.
+	 */
+	@Override
+	public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+	{
+		if (producers==null && !partitionedinserts)
+		{
+			return null;
+		}
+		ClientState state=new ClientState();
+		if (producers!=null)
+		{
+			state.ring=new OperationRing(pregeneratebuffer,fieldcount);
+		}
+		if (partitionedinserts)
+		{
+			long slice=insertcount/threadcount;
+			state.next=insertstart+mythreadid*slice;
+			state.end=state.next+slice;
+			if (sortedinserts)
+			{
+				if (slice>Integer.MAX_VALUE-8)
+				{
+					throw new WorkloadException("Can't sort a slice of "+slice+" records, use more threads");
+				}
+				long[] keys=new long[(int)(state.end-state.next)];
+				for (int i=0; i<keys.length; i++)
+				{
+					keys[i]=keyNumber(state.next+i);
+				}
+				KeyOrder.sort(keys);
+				state.keys=keys;
+				state.next=0;
+				state.end=keys.length;
+			}
+		}
+		return state;
+	}
+
+	@Override
+	public void cleanup() throws WorkloadException
+	{
+		if (producers!=null)
+		{
+			for (OperationProducer producer : producers)
+			{
+				producer.shutdown();
+			}
+		}
+		if (tracewriter!=null)
+		{
+			try
+			{
+				tracewriter.close();
+			}
+			catch (IOException e)
+			{
+				throw new WorkloadException("Could not write trace",e);
+			}
+		}
 	}
 
 	public String buildKeyName(long keynum) {
- 		if (!orderedinserts)
- 		{
- 			keynum=Utils.hash(keynum);
- 		}
-		return "user" + Long.toString(keynum, Character.MAX_RADIX);
+		return keyName(keyNumber(keynum));
+	}
+
+	/**
+	 * Build the key name of a record in the calling thread's key buffer, which is reused by its next operation.
+	 */
+	KeyBuffer buildKey(long keynum)
+	{
+		return KeyBuffer.forThread().set(keyNumber(keynum));
+	}
+
+	/**
+	 * @return the number the key name of a record is built from, i.e. the record number, hashed unless inserts are ordered
+	 */
+	long keyNumber(long keynum)
+	{
+		return orderedinserts ? keynum : Utils.hash(keynum);
+	}
+
+	static String keyName(long keynumber)
+	{
+		return "user" + Long.toString(keynumber, Character.MAX_RADIX);
 	}
 	HashMap<String, ByteIterator> buildValues() {
  		HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
@@ -430,6 +695,80 @@ public class CoreWorkload extends Workload
 		return values;
 	}
 
+	/**
+	 * @return new values for all fields, from the calling thread's pool if records are pooled
+	 */
+	HashMap<String,ByteIterator> nextValues()
+	{
+		if (pools==null)
+		{
+			return buildValues();
+		}
+		RecordPool pool=pools.get();
+		for (int i=0; i<fieldcount; i++)
+		{
+			pool.fill(i,fieldlengthgenerator.nextInt());
+		}
+		return pool.values();
+	}
+
+	/**
+	 * @return a new value for a random field, from the calling thread's pool if records are pooled
+	 */
+	HashMap<String,ByteIterator> nextUpdate()
+	{
+		if (pools==null)
+		{
+			return buildUpdate();
+		}
+		RecordPool pool=pools.get();
+		int field=fieldchooser.nextInt();
+		pool.fill(field,fieldlengthgenerator.nextInt());
+		return pool.value(field);
+	}
+
+	/**
+	 * @return the fields to read, a random one or null for all of them
+	 */
+	HashSet<String> nextFields()
+	{
+		if (readallfields)
+		{
+			return null;
+		}
+		if (pools!=null)
+		{
+			return pools.get().fields(fieldchooser.nextInt());
+		}
+		//read a random field
+		HashSet<String> fields=new HashSet<String>();
+		fields.add("field"+fieldchooser.nextString());
+		return fields;
+	}
+
+	HashMap<String,ByteIterator> newResult()
+	{
+		return pools==null ? new HashMap<String,ByteIterator>() : pools.get().result();
+	}
+
+	Vector<HashMap<String,ByteIterator>> newResults()
+	{
+		return pools==null ? new Vector<HashMap<String,ByteIterator>>() : pools.get().results();
+	}
+
+	/**
+	 * Fail if the DB returns before it is done with an operation, which is the case for any binding driven
+	 * asynchronously, however it was asked for. The values and results of an operation can't be reused once the
+	 * call returns, and the next operation is not ordered after it.
+	 */
+	static void checkSynchronous(DB db, String what)
+	{
+		if (db instanceof AsyncDBWrapper)
+		{
+			throw new IllegalStateException("Can't "+what+" with an asynchronous binding");
+		}
+	}
+
 	/**
 	 * Do one insert operation. Because it will be called concurrently from multiple client threads, this 
 	 * function must be thread safe. However, avoid synchronized, or the threads will block waiting for each 
@@ -438,15 +777,93 @@ public class CoreWorkload extends Workload
 	 */
 	public boolean doInsert(DB db, Object threadstate)
 	{
-		int keynum=keysequence.nextInt();
-		String dbkey = buildKeyName(keynum);
-		HashMap<String, ByteIterator> values = buildValues();
+		if (pools!=null)
+		{
+			checkSynchronous(db,"pool records");
+		}
+		if (partitionedinserts)
+		{
+			return doPartitionedInsert(db,(ClientState)threadstate);
+		}
+		long keynum=keysequence.nextLong();
+		KeyBuffer dbkey = buildKey(keynum);
+		HashMap<String, ByteIterator> values = nextValues();
+		trace(TraceWriter.INSERT,keynum,null,values,0);
 		if (db.insert(table,dbkey,values) == 0)
 			return true;
 		else
 			return false;
 	}
 
+	/**
+	 * Insert the next record of a client thread's slice.
+	 *
+	 * @return false once the slice is done
+	 */
+	boolean doPartitionedInsert(DB db, ClientState state)
+	{
+		if (state.next==state.end)
+		{
+			return false;
+		}
+		long keynumber=nextPartitionKeyNumber(state);
+		HashMap<String, ByteIterator> values = nextValues();
+		if (tracewriter!=null)
+		{
+			traceKey(TraceWriter.INSERT,keynumber,null,values,0);
+		}
+		return db.insert(table,KeyBuffer.forThread().set(keynumber),values) == 0;
+	}
+
+	/**
+	 * @return the number the key name of the next record of a client thread's slice is built from
+	 */
+	long nextPartitionKeyNumber(ClientState state)
+	{
+		long keynumber=(state.keys!=null) ? state.keys[(int)state.next] : keyNumber(state.next);
+		state.next++;
+		return keynumber;
+	}
+
+	/**
+	 * Insert up to count records with one call to DB.insertBatch().
+	 */
+	@Override
+	public int doInsertBatch(DB db, Object threadstate, int count)
+	{
+		List<String> keys=new ArrayList<String>(count);
+		List<HashMap<String,ByteIterator>> records=new ArrayList<HashMap<String,ByteIterator>>(count);
+		for (int i=0; i<count; i++)
+		{
+			long keynumber;
+			if (partitionedinserts)
+			{
+				ClientState state=(ClientState)threadstate;
+				if (state.next==state.end)
+				{
+					break;
+				}
+				keynumber=nextPartitionKeyNumber(state);
+			}
+			else
+			{
+				keynumber=keyNumber(keysequence.nextLong());
+			}
+			HashMap<String, ByteIterator> values = buildValues();
+			if (tracewriter!=null)
+			{
+				traceKey(TraceWriter.INSERT,keynumber,null,values,0);
+			}
+			keys.add(keyName(keynumber));
+			records.add(values);
+		}
+		if (keys.isEmpty() || db.insertBatch(table,keys,records)!=0)
+		{
+			return 0;
+		}
+		return keys.size();
+	}
+
 	/**
 	 * Do one transaction operation. Because it will be called concurrently from multiple client threads, this 
 	 * function must be thread safe. However, avoid synchronized, or the threads will block waiting for each 
@@ -455,46 +872,78 @@ public class CoreWorkload extends Workload
 	 */
 	public boolean doTransaction(DB db, Object threadstate)
 	{
-		String op=operationchooser.nextString();
-
-		if (op.compareTo("READ")==0)
+		if (pools!=null)
 		{
-			doTransactionRead(db);
+			checkSynchronous(db,"pool records");
 		}
-		else if (op.compareTo("UPDATE")==0)
+		if (threadstate!=null && ((ClientState)threadstate).ring!=null)
 		{
-			doTransactionUpdate(db);
+			OperationRing ring=((ClientState)threadstate).ring;
+			if (!ring._registered)
+			{
+				//the slot is refilled as soon as the operation returns
+				checkSynchronous(db,"pregenerate transactions");
+				register(ring);
+			}
+			Operation operation=ring.take();
+			executeTransaction(db,operation);
+			ring.release();
+			return true;
 		}
-		else if (op.compareTo("INSERT")==0)
+
+		switch (nextOperation())
 		{
+		case READ:
+			doTransactionRead(db);
+			break;
+		case UPDATE:
+			doTransactionUpdate(db);
+			break;
+		case INSERT:
 			doTransactionInsert(db);
-		}
-		else if (op.compareTo("SCAN")==0)
-		{
+			break;
+		case SCAN:
 			doTransactionScan(db);
-		}
-		else
-		{
+			break;
+		case MULTIREAD:
+			doTransactionMultiRead(db);
+			break;
+		case MULTIUPDATE:
+			doTransactionMultiUpdate(db);
+			break;
+		default:
 			doTransactionReadModifyWrite(db);
 		}
 		
 		return true;
 	}
 
-    int nextKeynum() {
-        int keynum;
+	/**
+	 * Choose the kind of the next transaction.
+	 */
+	OperationType nextOperation()
+	{
+		if (operationchooser==null)
+		{
+			throw new IllegalStateException("No operation has a proportion above 0");
+		}
+		return operations[operationchooser.nextInt()];
+	}
+
+    long nextKeynum() {
+        long keynum;
         if(keychooser instanceof ExponentialGenerator) {
             do
                 {
-                    keynum=transactioninsertkeysequence.lastInt() - keychooser.nextInt();
+                    keynum=transactioninsertkeysequence.lastLong() - keychooser.nextLong();
                 }
             while(keynum < 0);
         } else {
             do
                 {
-                    keynum=keychooser.nextInt();
+                    keynum=keychooser.nextLong();
                 }
-            while (keynum > transactioninsertkeysequence.lastInt());
+            while (keynum > transactioninsertkeysequence.lastLong());
         }
         return keynum;
     }
@@ -502,123 +951,370 @@ public class CoreWorkload extends Workload
 	public void doTransactionRead(DB db)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextKeynum();
 		
-		String keyname = buildKeyName(keynum);
+		KeyBuffer keyname = buildKey(keynum);
 		
-		HashSet<String> fields=null;
+		HashSet<String> fields=nextFields();
 
-		if (!readallfields)
-		{
-			//read a random field  
-			String fieldname="field"+fieldchooser.nextString();
-
-			fields=new HashSet<String>();
-			fields.add(fieldname);
-		}
-
-		db.read(table,keyname,fields,new HashMap<String,ByteIterator>());
+		trace(TraceWriter.READ,keynum,fields,null,0);
+		db.read(table,keyname,fields,newResult());
 	}
 	
 	public void doTransactionReadModifyWrite(DB db)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
-
-		String keyname = buildKeyName(keynum);
+		long keynum = nextKeynum();
 
-		HashSet<String> fields=null;
+		KeyBuffer keyname = buildKey(keynum);
 
-		if (!readallfields)
-		{
-			//read a random field  
-			String fieldname="field"+fieldchooser.nextString();
-
-			fields=new HashSet<String>();
-			fields.add(fieldname);
-		}
+		HashSet<String> fields=nextFields();
 		
 		HashMap<String,ByteIterator> values;
 
 		if (writeallfields)
 		{
 		   //new data for all the fields
-		   values = buildValues();
+		   values = nextValues();
 		}
 		else
 		{
 		   //update a random field
-		   values = buildUpdate();
+		   values = nextUpdate();
 		}
 
 		//do the transaction
-		
+		trace(TraceWriter.READMODIFYWRITE,keynum,fields,values,0);
+		readModifyWrite(db,keyname,fields,values,newResult());
+	}
+
+	/**
+	 * Read a record and write it back, measuring the two together. The write must follow the read, so this
+	 * can't be done with an asynchronous binding.
+	 */
+	void readModifyWrite(DB db, CharSequence keyname, HashSet<String> fields, HashMap<String,ByteIterator> values, HashMap<String,ByteIterator> result)
+	{
+		checkSynchronous(db,"read-modify-write");
+		Measurements measurements=Measurements.getMeasurements();
+		long ist=measurements.getIntendedStartTimeNs();
 		long st=System.nanoTime();
 
-		db.read(table,keyname,fields,new HashMap<String,ByteIterator>());
+		db.read(table,keyname,fields,result);
 		
 		db.update(table,keyname,values);
 
 		long en=System.nanoTime();
 		
-		Measurements.getMeasurements().measure("READ-MODIFY-WRITE", (int)((en-st)/1000));
+		measurements.measureNanos("READ-MODIFY-WRITE", en-st);
+		if (ist!=0)
+		{
+			measurements.measureIntendedNanos("READ-MODIFY-WRITE", en-ist);
+		}
 	}
 	
 	public void doTransactionScan(DB db)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextKeynum();
 
 		String startkeyname = buildKeyName(keynum);
 		
 		//choose a random scan length
 		int len=scanlength.nextInt();
 
-		HashSet<String> fields=null;
+		HashSet<String> fields=nextFields();
 
-		if (!readallfields)
-		{
-			//read a random field  
-			String fieldname="field"+fieldchooser.nextString();
-
-			fields=new HashSet<String>();
-			fields.add(fieldname);
-		}
-
-		db.scan(table,startkeyname,len,fields,new Vector<HashMap<String,ByteIterator>>());
+		trace(TraceWriter.SCAN,keynum,fields,null,len);
+		db.scan(table,startkeyname,len,fields,newResults());
 	}
 
 	public void doTransactionUpdate(DB db)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextKeynum();
 
-		String keyname=buildKeyName(keynum);
+		KeyBuffer keyname=buildKey(keynum);
 
 		HashMap<String,ByteIterator> values;
 
 		if (writeallfields)
 		{
 		   //new data for all the fields
-		   values = buildValues();
+		   values = nextValues();
 		}
 		else
 		{
 		   //update a random field
-		   values = buildUpdate();
+		   values = nextUpdate();
 		}
 
+		trace(TraceWriter.UPDATE,keynum,null,values,0);
 		db.update(table,keyname,values);
 	}
 
+	/**
+	 * Choose the keys of a multi-key operation.
+	 *
+	 * @param keys the list to add the key names to
+	 * @return the numbers the keys were built from
+	 */
+	long[] chooseMultiKeys(List<String> keys)
+	{
+		long[] keynums=new long[multikeys.nextInt()];
+		for (int i=0; i<keynums.length; i++)
+		{
+			keynums[i]=nextKeynum();
+			keys.add(buildKeyName(keynums[i]));
+		}
+		return keynums;
+	}
+
+	public void doTransactionMultiRead(DB db)
+	{
+		//choose the keys
+		List<String> keys=new ArrayList<String>();
+		long[] keynums=chooseMultiKeys(keys);
+
+		HashSet<String> fields=null;
+
+		if (!readallfields)
+		{
+			//read a random field of every record
+			String fieldname="field"+fieldchooser.nextString();
+
+			fields=new HashSet<String>();
+			fields.add(fieldname);
+		}
+
+		for (long keynum : keynums)
+		{
+			trace(TraceWriter.READ,keynum,fields,null,0);
+		}
+		db.multiRead(table,keys,fields,new ArrayList<HashMap<String,ByteIterator>>(keys.size()));
+	}
+
+	public void doTransactionMultiUpdate(DB db)
+	{
+		//choose the keys
+		List<String> keys=new ArrayList<String>();
+		long[] keynums=chooseMultiKeys(keys);
+
+		List<HashMap<String,ByteIterator>> values=new ArrayList<HashMap<String,ByteIterator>>(keys.size());
+		for (int i=0; i<keynums.length; i++)
+		{
+			//new data for all the fields, or a random field, of each record
+			values.add(writeallfields ? buildValues() : buildUpdate());
+			trace(TraceWriter.UPDATE,keynums[i],null,values.get(i),0);
+		}
+		db.multiUpdate(table,keys,values);
+	}
+
 	public void doTransactionInsert(DB db)
 	{
 		//choose the next key
-		int keynum=transactioninsertkeysequence.nextInt();
+		long keynum=transactioninsertkeysequence.nextLong();
 
-		String dbkey = buildKeyName(keynum);
+		KeyBuffer dbkey = buildKey(keynum);
 
-		HashMap<String, ByteIterator> values = buildValues();
+		HashMap<String, ByteIterator> values = nextValues();
+		trace(TraceWriter.INSERT,keynum,null,values,0);
 		db.insert(table,dbkey,values);
 	}
+
+	/**
+	 * Hand a client thread's ring to one of the producers.
+	 */
+	synchronized void register(OperationRing ring)
+	{
+		ring._producer=producers[ringcount++%producers.length];
+		ring._producer.add(ring);
+		ring._registered=true;
+	}
+
+	/**
+	 * Take the ring of a client thread that is done away from its producer.
+	 */
+	@Override
+	public void cleanupThread(Object threadstate)
+	{
+		if (threadstate!=null && ((ClientState)threadstate).ring!=null)
+		{
+			ClientState state=(ClientState)threadstate;
+			if (state.ring._registered)
+			{
+				state.ring._producer.remove(state.ring);
+			}
+			state.ring=null;
+		}
+	}
+
+	/**
+	 * Generate a transaction into a slot of a ring: choose the kind of operation, its key (unless it is an insert)
+	 * and fields, and fill in the values to write. Called by the producer threads.
+	 */
+	void generateTransaction(Operation operation)
+	{
+		operation.clear();
+		OperationType op=nextOperation();
+		operation.op=op;
+
+		if (op==OperationType.INSERT)
+		{
+			//the key is only taken when the insert is executed
+			for (int i=0; i<fieldcount; i++)
+			{
+				generateValue(operation,i);
+			}
+			return;
+		}
+
+		if (op==OperationType.MULTIREAD || op==OperationType.MULTIUPDATE)
+		{
+			operation.keynums=chooseMultiKeys(operation.keys);
+			if (op==OperationType.MULTIUPDATE)
+			{
+				for (int i=0; i<operation.keynums.length; i++)
+				{
+					operation.multivalues.add(writeallfields ? buildValues() : buildUpdate());
+				}
+			}
+			else if (!readallfields)
+			{
+				operation.fieldset.add(fieldnames[fieldchooser.nextInt()]);
+				operation.fields=operation.fieldset;
+			}
+			return;
+		}
+
+		operation.keynum=nextKeynum();
+		operation.key=buildKeyName(operation.keynum);
+
+		if (op!=OperationType.UPDATE && !readallfields)
+		{
+			//read a random field
+			operation.fieldset.add(fieldnames[fieldchooser.nextInt()]);
+			operation.fields=operation.fieldset;
+		}
+
+		if (op==OperationType.SCAN)
+		{
+			operation.scanlength=scanlength.nextInt();
+		}
+		else if (op==OperationType.UPDATE || op==OperationType.READMODIFYWRITE)
+		{
+			if (writeallfields)
+			{
+				//new data for all the fields
+				for (int i=0; i<fieldcount; i++)
+				{
+					generateValue(operation,i);
+				}
+			}
+			else
+			{
+				//update a random field
+				generateValue(operation,fieldchooser.nextInt());
+			}
+		}
+	}
+
+	void generateValue(Operation operation, int field)
+	{
+		int length=fieldlengthgenerator.nextInt();
+		RandomByteIterator.randomBytes(operation.setValue(field,fieldnames[field],length),0,length);
+	}
+
+	/**
+	 * Execute a pregenerated transaction. Called by the client threads.
+	 */
+	void executeTransaction(DB db, Operation operation)
+	{
+		switch (operation.op)
+		{
+		case READ:
+			trace(TraceWriter.READ,operation.keynum,operation.fields,null,0);
+			db.read(table,operation.key,operation.fields,operation.result);
+			break;
+		case UPDATE:
+			trace(TraceWriter.UPDATE,operation.keynum,null,operation.values,0);
+			db.update(table,operation.key,operation.values);
+			break;
+		case INSERT:
+			operation.keynum=transactioninsertkeysequence.nextLong();
+			trace(TraceWriter.INSERT,operation.keynum,null,operation.values,0);
+			db.insert(table,buildKey(operation.keynum),operation.values);
+			break;
+		case SCAN:
+			trace(TraceWriter.SCAN,operation.keynum,operation.fields,null,operation.scanlength);
+			db.scan(table,operation.key,operation.scanlength,operation.fields,operation.results);
+			break;
+		case MULTIREAD:
+			for (long keynum : operation.keynums)
+			{
+				trace(TraceWriter.READ,keynum,operation.fields,null,0);
+			}
+			db.multiRead(table,operation.keys,operation.fields,operation.multiresults);
+			break;
+		case MULTIUPDATE:
+			for (int i=0; i<operation.keynums.length; i++)
+			{
+				trace(TraceWriter.UPDATE,operation.keynums[i],null,operation.multivalues.get(i),0);
+			}
+			db.multiUpdate(table,operation.keys,operation.multivalues);
+			break;
+		default:
+			trace(TraceWriter.READMODIFYWRITE,operation.keynum,operation.fields,operation.values,0);
+			readModifyWrite(db,operation.key,operation.fields,operation.values,operation.result);
+		}
+	}
+
+	/**
+	 * Record an operation about to be issued to the trace, if one is being recorded.
+	 *
+	 * @param fields the fields read, or null for all of them
+	 * @param values the values written, or null
+	 * @param scanlength the number of records to scan
+	 */
+	void trace(byte op, long keynum, HashSet<String> fields, HashMap<String,ByteIterator> values, int scanlength)
+	{
+		if (tracewriter!=null)
+		{
+			traceKey(op,keyNumber(keynum),fields,values,scanlength);
+		}
+	}
+
+	/**
+	 * Record an operation to the trace, given the number its key name is built from.
+	 */
+	void traceKey(byte op, long keynumber, HashSet<String> fields, HashMap<String,ByteIterator> values, int scanlength)
+	{
+		int readmask=0;
+		if (fields!=null)
+		{
+			for (String field : fields)
+			{
+				readmask|=1<<Integer.parseInt(field.substring("field".length()));
+			}
+		}
+		int writemask=0;
+		int length=scanlength;
+		if (values!=null)
+		{
+			for (Map.Entry<String,ByteIterator> value : values.entrySet())
+			{
+				writemask|=1<<Integer.parseInt(value.getKey().substring("field".length()));
+				length+=(int)value.getValue().bytesLeft();
+			}
+		}
+		try
+		{
+			tracewriter.record(op,keynumber,readmask,writemask,length);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			e.printStackTrace(System.out);
+			System.exit(0);
+		}
+	}
 }
@@ -0,0 +1,143 @@
+package com.yahoo.ycsb.workloads;
+
+/**
+ * Sorts key numbers into the order of the key names built from them, "user" followed by the number in base 36,
+ * without building the names.
+ */
+class KeyOrder
+{
+	//the powers of 36 that fit in a long
+	static final long[] POW36=new long[13];
+
+	static
+	{
+		POW36[0]=1;
+		for (int i=1; i<POW36.length; i++)
+		{
+			POW36[i]=POW36[i-1]*36;
+		}
+	}
+
+	//below this many elements, insertion sort beats partitioning
+	static final int INSERTION_SORT_THRESHOLD=16;
+
+	/**
+	 * Compare the key names of two key numbers, as String.compareTo would.
+	 */
+	static int compare(long a, long b)
+	{
+		if (a==b)
+		{
+			return 0;
+		}
+		if ((a<0)!=(b<0))
+		{
+			//the minus sign sorts before all digits
+			return a<0 ? -1 : 1;
+		}
+		if (a==Long.MIN_VALUE || b==Long.MIN_VALUE)
+		{
+			//has no positive magnitude
+			return Long.toString(a,Character.MAX_RADIX).compareTo(Long.toString(b,Character.MAX_RADIX));
+		}
+		long x=Math.abs(a);
+		long y=Math.abs(b);
+		int xdigits=digits(x);
+		int ydigits=digits(y);
+		//numbers with the same number of digits compare like their names, so compare the common prefix
+		int common=Math.min(xdigits,ydigits);
+		long xprefix=x/POW36[xdigits-common];
+		long yprefix=y/POW36[ydigits-common];
+		if (xprefix!=yprefix)
+		{
+			return xprefix<yprefix ? -1 : 1;
+		}
+		//one name is a prefix of the other, so the shorter one comes first
+		return xdigits<ydigits ? -1 : 1;
+	}
+
+	/**
+	 * @return the number of base 36 digits of a non-negative number
+	 */
+	static int digits(long x)
+	{
+		int digits=1;
+		while (digits<POW36.length && x>=POW36[digits])
+		{
+			digits++;
+		}
+		return digits;
+	}
+
+	/**
+	 * Sort key numbers in place into the order of their key names.
+	 */
+	static void sort(long[] keys)
+	{
+		sort(keys,0,keys.length);
+	}
+
+	/**
+	 * Sort keys[from, to) in place, with a quicksort on the median of three.
+	 */
+	static void sort(long[] keys, int from, int to)
+	{
+		while (to-from>INSERTION_SORT_THRESHOLD)
+		{
+			int mid=(from+to)>>>1;
+			long pivot=median(keys[from],keys[mid],keys[to-1]);
+			int i=from;
+			int j=to-1;
+			while (i<=j)
+			{
+				while (compare(keys[i],pivot)<0)
+				{
+					i++;
+				}
+				while (compare(keys[j],pivot)>0)
+				{
+					j--;
+				}
+				if (i<=j)
+				{
+					long t=keys[i];
+					keys[i]=keys[j];
+					keys[j]=t;
+					i++;
+					j--;
+				}
+			}
+			//recurse into the smaller part and loop on the larger, to bound the stack depth
+			if (j-from<to-i)
+			{
+				sort(keys,from,j+1);
+				from=i;
+			}
+			else
+			{
+				sort(keys,i,to);
+				to=j+1;
+			}
+		}
+		for (int i=from+1; i<to; i++)
+		{
+			long key=keys[i];
+			int j=i-1;
+			while (j>=from && compare(keys[j],key)>0)
+			{
+				keys[j+1]=keys[j];
+				j--;
+			}
+			keys[j+1]=key;
+		}
+	}
+
+	static long median(long a, long b, long c)
+	{
+		if (compare(a,b)<0)
+		{
+			return compare(b,c)<0 ? b : (compare(a,c)<0 ? c : a);
+		}
+		return compare(a,c)<0 ? a : (compare(b,c)<0 ? c : b);
+	}
+}
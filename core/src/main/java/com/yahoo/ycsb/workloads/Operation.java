@@ -0,0 +1,90 @@
+package com.yahoo.ycsb.workloads;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Vector;
+
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ByteIterator;
+
+/**
+ * A pre-generated transaction, in a slot of an {@link OperationRing}. The slots are reused, so the field set,
+ * values and result containers are only valid until the operation has been executed.
+ */
+class Operation
+{
+	/**
+	 * The kind of operation, as chosen by the operation chooser.
+	 */
+	OperationType op;
+
+	String key;
+
+	//the number the key was built from, for recording a trace
+	long keynum;
+
+	/**
+	 * The fields to read, or null for all of them.
+	 */
+	HashSet<String> fields;
+
+	HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+
+	int scanlength;
+
+	HashSet<String> fieldset=new HashSet<String>();
+
+	HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+
+	Vector<HashMap<String,ByteIterator>> results=new Vector<HashMap<String,ByteIterator>>();
+
+	//the keys of a multi-key operation, and the numbers they were built from
+	List<String> keys=new ArrayList<String>();
+	long[] keynums;
+
+	//the values to write to each key of a multi-key update, not reused
+	List<HashMap<String,ByteIterator>> multivalues=new ArrayList<HashMap<String,ByteIterator>>();
+
+	List<HashMap<String,ByteIterator>> multiresults=new ArrayList<HashMap<String,ByteIterator>>();
+
+	//the bytes of each field value, grown as needed
+	byte[][] buffers;
+
+	Operation(int fieldcount)
+	{
+		buffers=new byte[fieldcount][];
+	}
+
+	/**
+	 * Get ready to be filled with a new operation.
+	 */
+	void clear()
+	{
+		fields=null;
+		fieldset.clear();
+		values.clear();
+		result.clear();
+		results.clear();
+		keys.clear();
+		multivalues.clear();
+		multiresults.clear();
+	}
+
+	/**
+	 * Set the value of a field to the given number of bytes, filled in by the caller.
+	 *
+	 * @return the buffer to write the bytes to
+	 */
+	byte[] setValue(int field, String fieldname, int length)
+	{
+		byte[] buffer=buffers[field];
+		if (buffer==null || buffer.length<length)
+		{
+			buffers[field]=buffer=new byte[length];
+		}
+		values.put(fieldname,new ByteArrayByteIterator(buffer,0,length));
+		return buffer;
+	}
+}
@@ -0,0 +1,119 @@
+package com.yahoo.ycsb.workloads;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Keeps the rings of a number of client threads topped up with pre-generated transactions. When none of its rings
+ * has room, e.g. during a load phase, the producer parks until a client thread has taken a batch worth of
+ * operations out of one, so it does not take CPU from the clients being measured.
+ */
+class OperationProducer extends Thread
+{
+	/**
+	 * How many operations to generate for one ring before moving on to the next, so no ring waits long for the others.
+	 */
+	static final int BATCH=64;
+
+	/**
+	 * The longest to park for, in nanoseconds, in case a client thread released a slot just as the producer parked
+	 * and so did not see that it had to wake it.
+	 */
+	static final long PARK_NANOS=1000000;
+
+	CoreWorkload _workload;
+	Random _random;
+	List<OperationRing> _rings=new CopyOnWriteArrayList<OperationRing>();
+	volatile boolean _stopped;
+
+	//set while the producer is parked, or about to be
+	volatile boolean _waiting;
+
+	OperationProducer(CoreWorkload workload, Random random)
+	{
+		super("OperationProducer");
+		_workload=workload;
+		_random=random;
+		setDaemon(true);
+	}
+
+	void add(OperationRing ring)
+	{
+		_rings.add(ring);
+		wake();
+	}
+
+	/**
+	 * Stop filling a ring whose client thread is done. What is left in it is never executed.
+	 */
+	void remove(OperationRing ring)
+	{
+		_rings.remove(ring);
+	}
+
+	void shutdown()
+	{
+		_stopped=true;
+		wake();
+	}
+
+	/**
+	 * @return true unless the producer was shut down or died, in which case it won't fill its rings any more
+	 */
+	boolean isRunning()
+	{
+		return !_stopped && isAlive();
+	}
+
+	/**
+	 * Unpark the producer if it is parked, e.g. because a ring it fills has room again.
+	 */
+	void wake()
+	{
+		_waiting=false;
+		LockSupport.unpark(this);
+	}
+
+	public void run()
+	{
+		Utils.setRandom(_random);
+		while (!_stopped)
+		{
+			if (!fill())
+			{
+				//announce the park first, then look again, so a slot released in between is not missed
+				_waiting=true;
+				if (!fill() && !_stopped)
+				{
+					LockSupport.parkNanos(this,PARK_NANOS);
+				}
+				_waiting=false;
+			}
+		}
+	}
+
+	/**
+	 * Generate operations into every ring with room, up to a batch of them for each.
+	 *
+	 * @return whether any operation was generated
+	 */
+	boolean fill()
+	{
+		boolean filled=false;
+		for (OperationRing ring : _rings)
+		{
+			Operation op;
+			for (int i=0; i<BATCH && (op=ring.claim())!=null; i++)
+			{
+				_workload.generateTransaction(op);
+				ring.publish();
+				filled=true;
+			}
+		}
+		return filled;
+	}
+}
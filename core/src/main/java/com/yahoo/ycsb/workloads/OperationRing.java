@@ -0,0 +1,102 @@
+package com.yahoo.ycsb.workloads;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded ring of pre-generated operations, filled by one producer thread and drained by one client thread.
+ * The slots are allocated once and reused, so passing operations through the ring allocates nothing.
+ */
+class OperationRing
+{
+	final Operation[] _slots;
+	final int _mask;
+
+	//how many slots must be free before a release wakes a parked producer
+	final int _wakeat;
+
+	//the next slot to take, only advanced by the client thread
+	final AtomicLong _head=new AtomicLong();
+
+	//the next slot to fill, only advanced by the producer thread
+	final AtomicLong _tail=new AtomicLong();
+
+	/**
+	 * Whether this ring has been handed to a producer, which happens when the client thread first uses it.
+	 */
+	volatile boolean _registered;
+
+	/**
+	 * The producer filling this ring, once it has been registered.
+	 */
+	OperationProducer _producer;
+
+	/**
+	 * @param capacity the number of slots, rounded up to a power of two
+	 */
+	OperationRing(int capacity, int fieldcount)
+	{
+		int size=Integer.highestOneBit(Math.max(capacity-1,1))<<1;
+		_slots=new Operation[size];
+		for (int i=0; i<size; i++)
+		{
+			_slots[i]=new Operation(fieldcount);
+		}
+		_mask=size-1;
+		_wakeat=Math.max(1,Math.min(OperationProducer.BATCH,size/2));
+	}
+
+	/**
+	 * Producer side: return the next free slot to fill, or null if the ring is full.
+	 */
+	Operation claim()
+	{
+		long tail=_tail.get();
+		if (tail-_head.get()==_slots.length)
+		{
+			return null;
+		}
+		return _slots[(int)tail&_mask];
+	}
+
+	/**
+	 * Producer side: make the slot returned by claim() available to the client thread.
+	 */
+	void publish()
+	{
+		_tail.lazySet(_tail.get()+1);
+	}
+
+	/**
+	 * Client side: return the next operation, waiting for the producer if the ring is empty.
+	 *
+	 * @throws IllegalStateException if the ring is empty and the producer has stopped, e.g. on an error
+	 */
+	Operation take()
+	{
+		long head=_head.get();
+		while (head==_tail.get())
+		{
+			//look at the tail again, as the producer may have published just before it stopped
+			if (!_producer.isRunning() && head==_tail.get())
+			{
+				throw new IllegalStateException("The producer of pre-generated transactions has stopped");
+			}
+			Thread.yield();
+		}
+		return _slots[(int)head&_mask];
+	}
+
+	/**
+	 * Client side: hand the slot returned by take() back to the producer once the operation is done, waking it
+	 * if it is parked and there is enough room to be worth it.
+	 */
+	void release()
+	{
+		long head=_head.get()+1;
+		_head.lazySet(head);
+		if (_producer._waiting && _slots.length-(_tail.get()-head)>=_wakeat)
+		{
+			_producer.wake();
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package com.yahoo.ycsb.workloads;
+
+/**
+ * The kinds of transaction CoreWorkload can choose from, in the order of their proportion properties.
+ */
+public enum OperationType
+{
+	READ,
+	UPDATE,
+	INSERT,
+	SCAN,
+	READMODIFYWRITE,
+	MULTIREAD,
+	MULTIUPDATE
+}
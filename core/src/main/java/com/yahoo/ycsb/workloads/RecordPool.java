@@ -0,0 +1,102 @@
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Vector;
+
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.RandomByteIterator;
+
+/**
+ * The records, field sets and result containers of one client thread, reused by each of its operations so that
+ * once they have grown to size, generating an operation allocates nothing. Whatever one operation is given is
+ * only valid until the thread's next operation.
+ *
+ * There is a map of values holding every field, for inserts and updates of all fields, and one holding just
+ * that field for each field, so maps never have to be emptied and refilled.
+ */
+class RecordPool
+{
+	String[] fieldnames;
+
+	//the bytes of each field value, grown as needed, and an iterator over them
+	byte[][] buffers;
+	ByteArrayByteIterator[] iterators;
+
+	HashMap<String,ByteIterator> allvalues=new HashMap<String,ByteIterator>();
+	HashMap<String,ByteIterator>[] fieldvalues;
+	HashSet<String>[] fieldsets;
+
+	HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+	Vector<HashMap<String,ByteIterator>> results=new Vector<HashMap<String,ByteIterator>>();
+
+	@SuppressWarnings({"unchecked","rawtypes"})
+	RecordPool(String[] fieldnames)
+	{
+		this.fieldnames=fieldnames;
+		buffers=new byte[fieldnames.length][0];
+		iterators=new ByteArrayByteIterator[fieldnames.length];
+		fieldvalues=new HashMap[fieldnames.length];
+		fieldsets=new HashSet[fieldnames.length];
+		for (int i=0; i<fieldnames.length; i++)
+		{
+			iterators[i]=new ByteArrayByteIterator(buffers[i]);
+			fieldvalues[i]=new HashMap<String,ByteIterator>();
+			fieldvalues[i].put(fieldnames[i],iterators[i]);
+			fieldsets[i]=new HashSet<String>();
+			fieldsets[i].add(fieldnames[i]);
+			allvalues.put(fieldnames[i],iterators[i]);
+		}
+	}
+
+	/**
+	 * Fill a field with the given number of new random bytes.
+	 */
+	void fill(int field, int length)
+	{
+		byte[] buffer=buffers[field];
+		if (buffer.length<length)
+		{
+			buffers[field]=buffer=new byte[length];
+		}
+		RandomByteIterator.randomBytes(buffer,0,length);
+		iterators[field].reset(buffer,0,length);
+	}
+
+	/**
+	 * @return the values of all fields, as last filled
+	 */
+	HashMap<String,ByteIterator> values()
+	{
+		return allvalues;
+	}
+
+	/**
+	 * @return the value of just one field, as last filled
+	 */
+	HashMap<String,ByteIterator> value(int field)
+	{
+		return fieldvalues[field];
+	}
+
+	/**
+	 * @return a set holding just one field, which must not be changed
+	 */
+	HashSet<String> fields(int field)
+	{
+		return fieldsets[field];
+	}
+
+	HashMap<String,ByteIterator> result()
+	{
+		result.clear();
+		return result;
+	}
+
+	Vector<HashMap<String,ByteIterator>> results()
+	{
+		results.clear();
+		return results;
+	}
+}
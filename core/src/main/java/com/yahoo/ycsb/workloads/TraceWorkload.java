@@ -0,0 +1,252 @@
+package com.yahoo.ycsb.workloads;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.KeyBuffer;
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.pacing.WaitStrategy;
+
+/**
+ * Replays a trace of operations recorded by CoreWorkload with "trace.record", see {@link TraceWriter} for the
+ * format. Both the load and the transaction phase replay the trace, and a client thread stops when it has replayed
+ * its part of it.
+ *
+ * The trace is memory-mapped and read in place. It is split into blocks of {@link #BLOCK_RECORDS} records, dealt out
+ * to the client threads in turn, so each thread reads its own records sequentially while all of them move through
+ * the trace at the same pace. With the original timing, each operation is issued at its recorded intended start
+ * time relative to the start of the replay, and its latency is also reported from that time, as in open loop mode.
+ *
+ * Properties to control the replay:
+ * <UL>
+ * <LI><b>trace.file</b>: the trace to replay
+ * <LI><b>trace.timing</b>: "original" to issue operations at their recorded times, or "fast" to issue them as fast as possible (default: original)
+ * <LI><b>table</b>: the name of the table to replay against (default: usertable)
+ * </ul>
+ */
+public class TraceWorkload extends Workload
+{
+	public static final String FILE_PROPERTY="trace.file";
+
+	public static final String TIMING_PROPERTY="trace.timing";
+
+	public static final String TIMING_PROPERTY_DEFAULT="original";
+
+	/**
+	 * The number of consecutive records each client thread replays before skipping the blocks of the others.
+	 */
+	public static final int BLOCK_RECORDS=1024;
+
+	String table;
+	boolean originaltiming;
+	long records;
+	MappedByteBuffer[] segments;
+	String[] fieldnames=new String[TraceWriter.MAX_FIELDS];
+
+	//when the replay started, or 0 before the first operation
+	AtomicLong starttime=new AtomicLong();
+
+	/**
+	 * The position of one client thread in the trace.
+	 */
+	static class Cursor
+	{
+		long next;
+		long end;
+		long stride;
+	}
+
+	public void init(Properties p) throws WorkloadException
+	{
+		table=p.getProperty(CoreWorkload.TABLENAME_PROPERTY,CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+		String filename=p.getProperty(FILE_PROPERTY);
+		if (filename==null)
+		{
+			throw new WorkloadException("Missing property "+FILE_PROPERTY);
+		}
+		String timing=p.getProperty(TIMING_PROPERTY,TIMING_PROPERTY_DEFAULT);
+		if (!timing.equals("original") && !timing.equals("fast"))
+		{
+			throw new WorkloadException("Unknown trace timing \""+timing+"\"");
+		}
+		originaltiming=timing.equals("original");
+		for (int i=0; i<fieldnames.length; i++)
+		{
+			fieldnames[i]="field"+i;
+		}
+
+		try
+		{
+			RandomAccessFile file=new RandomAccessFile(filename,"r");
+			try
+			{
+				FileChannel channel=file.getChannel();
+				long size=channel.size();
+				segments=new MappedByteBuffer[(int)((size+TraceWriter.SEGMENT_SIZE-1)/TraceWriter.SEGMENT_SIZE)];
+				for (int i=0; i<segments.length; i++)
+				{
+					long offset=(long)i*TraceWriter.SEGMENT_SIZE;
+					segments[i]=channel.map(FileChannel.MapMode.READ_ONLY,offset,Math.min(TraceWriter.SEGMENT_SIZE,size-offset));
+					segments[i].order(ByteOrder.LITTLE_ENDIAN);
+				}
+			}
+			finally
+			{
+				//the mappings stay valid after the file is closed
+				file.close();
+			}
+		}
+		catch (IOException e)
+		{
+			throw new WorkloadException("Could not map trace "+filename,e);
+		}
+		if (segments.length==0 || segments[0].getLong(0)!=TraceWriter.MAGIC)
+		{
+			throw new WorkloadException(filename+" is not a trace");
+		}
+		records=segments[0].getLong(8);
+	}
+
+	public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+	{
+		Cursor cursor=new Cursor();
+		cursor.next=(long)mythreadid*BLOCK_RECORDS;
+		cursor.end=cursor.next+BLOCK_RECORDS;
+		cursor.stride=(long)threadcount*BLOCK_RECORDS;
+		return cursor;
+	}
+
+	public boolean doInsert(DB db, Object threadstate)
+	{
+		return replay(db,(Cursor)threadstate);
+	}
+
+	public boolean doTransaction(DB db, Object threadstate)
+	{
+		return replay(db,(Cursor)threadstate);
+	}
+
+	/**
+	 * Replay the next operation of a client thread.
+	 *
+	 * @return false once the thread has replayed all its operations
+	 * @throws IllegalStateException if the trace holds an operation of an unknown kind
+	 */
+	boolean replay(DB db, Cursor cursor)
+	{
+		if (cursor.next==cursor.end)
+		{
+			//move on to this thread's next block
+			cursor.next+=cursor.stride-BLOCK_RECORDS;
+			cursor.end=cursor.next+BLOCK_RECORDS;
+		}
+		if (cursor.next>=records)
+		{
+			return false;
+		}
+
+		//record 0 is the header
+		long offset=(cursor.next+1)*TraceWriter.RECORD_SIZE;
+		cursor.next++;
+		MappedByteBuffer segment=segments[(int)(offset/TraceWriter.SEGMENT_SIZE)];
+		int pos=(int)(offset%TraceWriter.SEGMENT_SIZE);
+		long time=segment.getLong(pos+TraceWriter.TIME_OFFSET);
+		KeyBuffer key=KeyBuffer.forThread().set(segment.getLong(pos+TraceWriter.KEY_OFFSET));
+		int readmask=segment.getInt(pos+TraceWriter.READ_MASK_OFFSET);
+		int writemask=segment.getInt(pos+TraceWriter.WRITE_MASK_OFFSET);
+		int length=segment.getInt(pos+TraceWriter.LENGTH_OFFSET);
+		byte op=segment.get(pos+TraceWriter.OP_OFFSET);
+
+		if (originaltiming)
+		{
+			long now=System.nanoTime();
+			if (starttime.get()==0)
+			{
+				starttime.compareAndSet(0,now-time);
+			}
+			long intended=starttime.get()+time;
+			WaitStrategy.PARK.waitUntil(intended);
+			Measurements.getMeasurements().setIntendedStartTimeNs(intended);
+		}
+
+		HashSet<String> fields=readmask==0 ? null : fields(readmask);
+		switch (op)
+		{
+		case TraceWriter.READ:
+			db.read(table,key,fields,new HashMap<String,ByteIterator>());
+			break;
+		case TraceWriter.UPDATE:
+			db.update(table,key,values(writemask,length));
+			break;
+		case TraceWriter.INSERT:
+			db.insert(table,key,values(writemask,length));
+			break;
+		case TraceWriter.SCAN:
+			db.scan(table,key.toString(),length,fields,new Vector<HashMap<String,ByteIterator>>());
+			break;
+		case TraceWriter.READMODIFYWRITE:
+			CoreWorkload.checkSynchronous(db,"read-modify-write");
+			Measurements measurements=Measurements.getMeasurements();
+			long ist=measurements.getIntendedStartTimeNs();
+			long st=System.nanoTime();
+			db.read(table,key,fields,new HashMap<String,ByteIterator>());
+			db.update(table,key,values(writemask,length));
+			long en=System.nanoTime();
+			measurements.measureNanos("READ-MODIFY-WRITE",en-st);
+			if (ist!=0)
+			{
+				measurements.measureIntendedNanos("READ-MODIFY-WRITE",en-ist);
+			}
+			break;
+		default:
+			throw new IllegalStateException("Unknown operation "+op+" in trace record "+(offset/TraceWriter.RECORD_SIZE));
+		}
+		return true;
+	}
+
+	HashSet<String> fields(int mask)
+	{
+		HashSet<String> fields=new HashSet<String>();
+		for (int i=0; i<TraceWriter.MAX_FIELDS; i++)
+		{
+			if ((mask&(1<<i))!=0)
+			{
+				fields.add(fieldnames[i]);
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * Build random values for the given fields, sharing out the recorded number of bytes evenly.
+	 */
+	HashMap<String,ByteIterator> values(int mask, int length)
+	{
+		HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+		int count=Integer.bitCount(mask);
+		int done=0;
+		for (int i=0; i<TraceWriter.MAX_FIELDS; i++)
+		{
+			if ((mask&(1<<i))!=0)
+			{
+				int share=length/count+(done<length%count ? 1 : 0);
+				values.put(fieldnames[i],new RandomByteIterator(share));
+				done++;
+			}
+		}
+		return values;
+	}
+}
@@ -0,0 +1,145 @@
+package com.yahoo.ycsb.workloads;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Records the operations of a run into a memory-mapped binary trace, for {@link TraceWorkload} to replay.
+ *
+ * A trace is a sequence of fixed size records of {@link #RECORD_SIZE} bytes, in little-endian byte order. The first
+ * record is a header holding {@link #MAGIC} and the number of operation records that follow. Each operation
+ * record holds:
+ * <UL>
+ * <LI>the intended start time of the operation in nanoseconds since the first operation, as a long
+ * <LI>the number the key name is built from, after hashing, as a long
+ * <LI>a mask of the fields read, or 0 for all fields, as an int
+ * <LI>a mask of the fields written, as an int
+ * <LI>the number of bytes written over all fields, or the number of records to scan, as an int
+ * <LI>the kind of operation, as a byte
+ * </ul>
+ * so at most 32 fields can be recorded.
+ *
+ * The trace is written by all client threads at once: each operation claims the next record with an atomic
+ * increment and writes it directly into the mapping, which grows in segments of {@link #SEGMENT_SIZE} bytes.
+ */
+public class TraceWriter
+{
+	public static final int RECORD_SIZE=32;
+
+	public static final long MAGIC=0x5943534254524331L; // "YCSBTRC1"
+
+	public static final int TIME_OFFSET=0;
+	public static final int KEY_OFFSET=8;
+	public static final int READ_MASK_OFFSET=16;
+	public static final int WRITE_MASK_OFFSET=20;
+	public static final int LENGTH_OFFSET=24;
+	public static final int OP_OFFSET=28;
+
+	public static final byte READ=0;
+	public static final byte UPDATE=1;
+	public static final byte INSERT=2;
+	public static final byte SCAN=3;
+	public static final byte READMODIFYWRITE=4;
+
+	public static final int MAX_FIELDS=32;
+
+	/**
+	 * The size of the mapped segments of a trace, a multiple of the record size so no record spans two segments.
+	 */
+	public static final int SEGMENT_SIZE=1<<26;
+
+	RandomAccessFile _file;
+	FileChannel _channel;
+	volatile MappedByteBuffer[] _segments=new MappedByteBuffer[0];
+
+	//the number of records claimed so far, including the header
+	AtomicLong _records=new AtomicLong(1);
+
+	//the intended start time of the first operation, or 0 before it
+	AtomicLong _starttime=new AtomicLong();
+
+	public TraceWriter(String filename) throws IOException
+	{
+		_file=new RandomAccessFile(filename,"rw");
+		_file.setLength(0);
+		_channel=_file.getChannel();
+		segment(0);
+	}
+
+	/**
+	 * Return the mapped segment with the given index, mapping it if this is the first record in it.
+	 */
+	MappedByteBuffer segment(int index) throws IOException
+	{
+		MappedByteBuffer[] segments=_segments;
+		if (index<segments.length)
+		{
+			return segments[index];
+		}
+		synchronized (this)
+		{
+			segments=_segments;
+			if (index>=segments.length)
+			{
+				MappedByteBuffer[] grown=new MappedByteBuffer[index+1];
+				System.arraycopy(segments,0,grown,0,segments.length);
+				for (int i=segments.length; i<grown.length; i++)
+				{
+					grown[i]=_channel.map(FileChannel.MapMode.READ_WRITE,(long)i*SEGMENT_SIZE,SEGMENT_SIZE);
+					grown[i].order(ByteOrder.LITTLE_ENDIAN);
+				}
+				_segments=segments=grown;
+			}
+			return segments[index];
+		}
+	}
+
+	/**
+	 * Record an operation about to be issued by the calling client thread.
+	 */
+	public void record(byte op, long keynumber, int readmask, int writemask, int length) throws IOException
+	{
+		long time=Measurements.getMeasurements().getIntendedStartTimeNs();
+		if (time==0)
+		{
+			time=System.nanoTime();
+		}
+		if (_starttime.get()==0)
+		{
+			_starttime.compareAndSet(0,time);
+		}
+
+		long offset=_records.getAndIncrement()*RECORD_SIZE;
+		MappedByteBuffer segment=segment((int)(offset/SEGMENT_SIZE));
+		int pos=(int)(offset%SEGMENT_SIZE);
+		segment.putLong(pos+TIME_OFFSET,Math.max(0,time-_starttime.get()));
+		segment.putLong(pos+KEY_OFFSET,keynumber);
+		segment.putInt(pos+READ_MASK_OFFSET,readmask);
+		segment.putInt(pos+WRITE_MASK_OFFSET,writemask);
+		segment.putInt(pos+LENGTH_OFFSET,length);
+		segment.put(pos+OP_OFFSET,op);
+	}
+
+	/**
+	 * Write the header and cut the file down to the records written. Must only be called once no more
+	 * operations are being recorded.
+	 */
+	public void close() throws IOException
+	{
+		MappedByteBuffer header=segment(0);
+		header.putLong(0,MAGIC);
+		header.putLong(8,_records.get()-1);
+		for (MappedByteBuffer segment : _segments)
+		{
+			segment.force();
+		}
+		_channel.truncate(_records.get()*RECORD_SIZE);
+		_file.close();
+	}
+}
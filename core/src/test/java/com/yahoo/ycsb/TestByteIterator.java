@@ -1,5 +1,7 @@
 package com.yahoo.ycsb;
 
+import java.nio.ByteBuffer;
+
 import org.testng.annotations.Test;
 import static org.testng.AssertJUnit.*;
 
@@ -19,4 +21,51 @@ public class TestByteIterator {
     assertFalse(itor.hasNext());
     assertEquals(0, itor.bytesLeft());
   }
+
+  static void assertPrintable(byte b) {
+    assertTrue(b >= ' ' && b <= '?');
+  }
+
+  @Test
+  public void testRandomBytes() {
+    for (int len = 0; len < 40; len++) {
+      byte[] buffer = new byte[len + 6];
+      RandomByteIterator.randomBytes(buffer, 3, len);
+      for (int i = 0; i < buffer.length; i++) {
+        if (i < 3 || i >= 3 + len) {
+          assertEquals(0, buffer[i]);
+        } else {
+          assertPrintable(buffer[i]);
+        }
+      }
+
+      ByteBuffer bytes = ByteBuffer.allocate(len + 6);
+      bytes.position(3).limit(3 + len);
+      RandomByteIterator.randomBytes(bytes);
+      assertEquals(3 + len, bytes.position());
+      bytes.clear();
+      for (int i = 0; i < bytes.capacity(); i++) {
+        if (i < 3 || i >= 3 + len) {
+          assertEquals(0, bytes.get(i));
+        } else {
+          assertPrintable(bytes.get(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMixedReads() {
+    ByteIterator itor = new RandomByteIterator(20);
+    for (int i = 0; i < 5; i++) {
+      assertPrintable(itor.nextByte());
+    }
+    assertEquals(15, itor.bytesLeft());
+    byte[] rest = new byte[32];
+    assertEquals(15, itor.nextBuf(rest, 0));
+    assertFalse(itor.hasNext());
+    for (int i = 0; i < 15; i++) {
+      assertPrintable(rest[i]);
+    }
+  }
 }
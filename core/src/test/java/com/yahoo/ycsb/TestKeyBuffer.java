@@ -0,0 +1,43 @@
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestKeyBuffer {
+  static void check(KeyBuffer buffer, long keynumber) {
+    String expected = "user" + Long.toString(keynumber, Character.MAX_RADIX);
+    buffer.set(keynumber);
+    assertEquals(expected.length(), buffer.length());
+    for (int i = 0; i < expected.length(); i++) {
+      assertEquals(expected.charAt(i), buffer.charAt(i));
+    }
+    assertEquals(expected, buffer.toString());
+    assertEquals(keynumber, buffer.getKeyNumber());
+
+    byte[] bytes = new byte[40];
+    assertEquals(expected.length(), buffer.getBytes(bytes, 3));
+    assertEquals(expected, new String(bytes, 3, expected.length()));
+  }
+
+  @Test
+  public void testMatchesKeyNames() {
+    KeyBuffer buffer = new KeyBuffer();
+    long[] keynumbers = {0, 1, 35, 36, -1, -36, Integer.MAX_VALUE, 1L << 40, Long.MAX_VALUE, Long.MIN_VALUE};
+    for (long keynumber : keynumbers) {
+      check(buffer, keynumber);
+    }
+    SplitMixRandom random = new SplitMixRandom(7);
+    for (int i = 0; i < 10000; i++) {
+      check(buffer, Utils.hash(random.nextLong()));
+    }
+  }
+
+  @Test
+  public void testReuse() {
+    KeyBuffer buffer = KeyBuffer.forThread();
+    assertSame(buffer, KeyBuffer.forThread());
+    assertEquals("user" + Long.toString(Long.MAX_VALUE, Character.MAX_RADIX), buffer.set(Long.MAX_VALUE).toString());
+    assertEquals("user5", buffer.set(5).toString());
+    assertEquals("user5", buffer.subSequence(0, 5).toString());
+  }
+}
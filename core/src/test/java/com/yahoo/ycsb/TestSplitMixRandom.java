@@ -0,0 +1,39 @@
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestSplitMixRandom {
+  @Test
+  public void testSameSeedSameStream() {
+    SplitMixRandom a = new SplitMixRandom(SplitMixRandom.mix(42, 3));
+    SplitMixRandom b = new SplitMixRandom(SplitMixRandom.mix(42, 3));
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(a.nextLong(), b.nextLong());
+    }
+  }
+
+  @Test
+  public void testStreamsDiffer() {
+    SplitMixRandom a = new SplitMixRandom(SplitMixRandom.mix(42, 0));
+    SplitMixRandom b = new SplitMixRandom(SplitMixRandom.mix(42, 1));
+    int same = 0;
+    for (int i = 0; i < 1000; i++) {
+      if (a.nextInt() == b.nextInt()) {
+        same++;
+      }
+    }
+    assertTrue(same < 2);
+  }
+
+  @Test
+  public void testRanges() {
+    SplitMixRandom r = new SplitMixRandom(7);
+    for (int i = 0; i < 10000; i++) {
+      int n = r.nextInt(10);
+      assertTrue(n >= 0 && n < 10);
+      double d = r.nextDouble();
+      assertTrue(d >= 0.0 && d < 1.0);
+    }
+  }
+}
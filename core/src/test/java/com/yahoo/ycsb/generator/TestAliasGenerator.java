@@ -0,0 +1,62 @@
+package com.yahoo.ycsb.generator;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+import com.yahoo.ycsb.SplitMixRandom;
+import com.yahoo.ycsb.Utils;
+
+public class TestAliasGenerator {
+  static void checkFrequencies(double[] weights) {
+    Utils.setRandom(new SplitMixRandom(1));
+    AliasGenerator generator = new AliasGenerator(weights);
+    double sum = 0;
+    for (double weight : weights) {
+      sum += weight;
+    }
+    int draws = 1000000;
+    int[] counts = new int[weights.length];
+    for (int i = 0; i < draws; i++) {
+      int index = generator.nextInt();
+      counts[index]++;
+      assertEquals(index, generator.lastInt());
+    }
+    for (int i = 0; i < weights.length; i++) {
+      double expected = weights[i] / sum;
+      assertEquals(expected, counts[i] / (double) draws, 0.002);
+      if (weights[i] == 0) {
+        assertEquals(0, counts[i]);
+      }
+    }
+  }
+
+  @Test
+  public void testFrequencies() {
+    checkFrequencies(new double[] {0.95, 0.05});
+    checkFrequencies(new double[] {0.5, 0, 0.25, 0.125, 0.125});
+    checkFrequencies(new double[] {1});
+    checkFrequencies(new double[] {3, 1, 4, 1, 5, 9, 2, 6});
+  }
+
+  @Test
+  public void testFinePrecision() {
+    //weights below the 1% steps of DiscreteGenerator are kept
+    Utils.setRandom(new SplitMixRandom(2));
+    AliasGenerator generator = new AliasGenerator(new double[] {0.999, 0.001});
+    int rare = 0;
+    for (int i = 0; i < 1000000; i++) {
+      rare += generator.nextInt();
+    }
+    assertEquals(1000, rare, 150);
+  }
+
+  @Test
+  public void testMean() {
+    assertEquals(1.5, new AliasGenerator(new double[] {1, 1, 1, 1}).mean(), 1e-9);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNoWeight() {
+    new AliasGenerator(new double[] {0, 0});
+  }
+}
@@ -0,0 +1,138 @@
+package com.yahoo.ycsb.measurements;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestMeasurements {
+  static Measurements measurements(String type) {
+    Properties props = new Properties();
+    props.setProperty("measurementtype", type);
+    return new Measurements(props);
+  }
+
+  @Test
+  public void testCollectWhileRecording() throws InterruptedException {
+    for (String type : new String[] {"histogram", "hdrhistogram", "timeseries"}) {
+      final Measurements measurements = measurements(type);
+      final int perthread = 200000;
+      Thread[] threads = new Thread[4];
+      for (int i = 0; i < threads.length; i++) {
+        threads[i] = new Thread() {
+          public void run() {
+            for (int j = 0; j < perthread; j++) {
+              measurements.measure("READ", j % 100);
+              measurements.reportReturnCode("READ", 0);
+            }
+          }
+        };
+        threads[i].start();
+      }
+      long previous = 0;
+      boolean running = true;
+      while (running) {
+        running = false;
+        for (Thread thread : threads) {
+          running |= thread.isAlive();
+        }
+        measurements.getSummary();
+        OneMeasurement read = measurements.snapshot().get("READ");
+        long operations = read == null ? 0 : read.getOperations();
+        assertTrue(operations >= previous);
+        previous = operations;
+      }
+      Map<String, OneMeasurement> data = measurements.snapshot();
+      assertEquals((long) threads.length * perthread, data.get("READ").getOperations());
+      assertEquals(99, data.get("READ").getPercentileLatency(100), 1);
+
+      measurements.reset();
+      assertTrue(measurements.snapshot().isEmpty());
+      measurements.measure("UPDATE", 5);
+      data = measurements.snapshot();
+      assertEquals(1, data.size());
+      assertEquals(1, data.get("UPDATE").getOperations());
+    }
+  }
+
+  @Test
+  public void testCollectReusesThreadMeasurements() {
+    for (String type : new String[] {"histogram", "hdrhistogram", "timeseries"}) {
+      Measurements measurements = measurements(type);
+      Measurements.ThreadMeasurements t = measurements.data.get();
+      for (int i = 1; i <= 2; i++) {
+        measurements.measure("READ", 5);
+        measurements.reportReturnCode("READ", 0);
+        assertEquals(i, measurements.snapshot().get("READ").getOperations());
+      }
+      OneMeasurement first = t.maps[0].get("READ");
+      OneMeasurement second = t.maps[1].get("READ");
+      assertNotNull(first);
+      assertNotNull(second);
+      for (int i = 3; i <= 4; i++) {
+        measurements.measure("READ", 5);
+        assertEquals(i, measurements.snapshot().get("READ").getOperations());
+      }
+      assertSame(first, t.maps[0].get("READ"));
+      assertSame(second, t.maps[1].get("READ"));
+      assertEquals(0, first.getOperations());
+      assertEquals(0, second.getOperations());
+    }
+  }
+
+  @Test
+  public void testAmortizedLatencyPerKey() throws IOException {
+    Measurements measurements = measurements("hdrhistogram");
+    measurements.measureNanos("MULTI-READ", 100000);
+    measurements.reportKeys("MULTI-READ", 4);
+    Map<String, OneMeasurement> earlier = measurements.snapshot();
+    measurements.measureNanos("MULTI-READ", 100000);
+    measurements.reportKeys("MULTI-READ", 4);
+
+    assertTrue(export(measurements.snapshot()).contains("[MULTI-READ], AmortizedLatencyPerKey(us), 25"));
+    assertTrue(export(Measurements.since(measurements.snapshot(), earlier)).contains("[MULTI-READ], AmortizedLatencyPerKey(us), 25"));
+  }
+
+  static String export(Map<String, OneMeasurement> data) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    Measurements.exportMeasurements(data, exporter);
+    exporter.close();
+    return out.toString();
+  }
+
+  @Test
+  public void testServiceAndResponseTimes() throws IOException {
+    Measurements measurements = measurements("hdrhistogram");
+    measurements.setIntendedStartTimeNs(System.nanoTime() - 5000000);
+    measurements.measureNanos("UPDATE", 1000);
+    measurements.measureIntendedNanos("UPDATE", 5001000);
+    measurements.measureNanos("READ", 1000);
+    measurements.measureIntendedNanos("READ", 6000000);
+    Map<String, OneMeasurement> data = measurements.snapshot();
+    assertTrue(data.get(Measurements.BEHIND_SCHEDULE).getPercentileLatency(100) >= 5000);
+    assertEquals(6000, Measurements.getPercentileLatency(data, 100, null, true), 60);
+    assertEquals(1, Measurements.getPercentileLatency(data, 100, null, false), 0.01);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    Measurements.exportMeasurements(data, exporter);
+    exporter.close();
+    String text = out.toString();
+    int behind = text.indexOf("[BEHIND-SCHEDULE], Operations");
+    int read = text.indexOf("[READ], Operations");
+    int intendedread = text.indexOf("[Intended-READ], Operations");
+    int update = text.indexOf("[UPDATE], Operations");
+    int intendedupdate = text.indexOf("[Intended-UPDATE], Operations");
+    assertTrue(behind >= 0);
+    assertTrue(behind < read);
+    assertTrue(read < intendedread);
+    assertTrue(intendedread < update);
+    assertTrue(update < intendedupdate);
+  }
+}
@@ -0,0 +1,101 @@
+package com.yahoo.ycsb.measurements;
+
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestOneMeasurementHdrHistogram {
+  static OneMeasurementHdrHistogram histogram(int digits) {
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementHdrHistogram.DIGITS, Integer.toString(digits));
+    return new OneMeasurementHdrHistogram("READ", props);
+  }
+
+  @Test
+  public void testPrecision() {
+    for (int digits = 1; digits <= 3; digits++) {
+      OneMeasurementHdrHistogram h = histogram(digits);
+      double error = Math.pow(10, -digits);
+      long[] values = {0, 1, 7, 999, 123456, 987654321L, 3600L * 1000000000L, Long.MAX_VALUE / 3};
+      for (long value : values) {
+        int e = h.exponent(value);
+        long highest = h.highestValue(e, h.index(value, e));
+        assertTrue(highest >= value);
+        assertTrue(highest - value <= value * error);
+      }
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    OneMeasurementHdrHistogram h = histogram(2);
+    for (int i = 1; i <= 100000; i++) {
+      h.measureNanos(i * 1000L);
+    }
+    assertEquals(100000, h.getOperations());
+    assertEquals(50000, h.getPercentileLatency(50), 500);
+    assertEquals(99000, h.getPercentileLatency(99), 990);
+    assertEquals(99900, h.getPercentileLatency(99.9), 999);
+    assertEquals(100000, h.getPercentileLatency(100), 0);
+    assertEquals(1000, h.getPercentileNanos(0), 10);
+  }
+
+  @Test
+  public void testMergeAndSince() {
+    OneMeasurementHdrHistogram a = histogram(2);
+    OneMeasurementHdrHistogram b = histogram(2);
+    for (int i = 0; i < 1000; i++) {
+      a.measureNanos(1000);
+      b.measureNanos(1000000000L);
+    }
+    OneMeasurementHdrHistogram before = a.clone();
+    a.merge(b);
+    assertEquals(2000, a.getOperations());
+    assertEquals(1, a.getPercentileLatency(50), 0.01);
+    assertEquals(1000000, a.getPercentileLatency(51), 10000);
+    assertEquals(1000, a.min);
+    assertEquals(1000000000L, a.max);
+
+    OneMeasurement interval = a.since(before);
+    assertEquals(1000, interval.getOperations());
+    assertEquals(1000000, interval.getPercentileLatency(1), 10000);
+    assertEquals(1000, before.getOperations());
+  }
+
+  @Test
+  public void testMicroseconds() {
+    OneMeasurementHdrHistogram h = histogram(3);
+    h.measure(250);
+    assertEquals(250, h.getPercentileLatency(50), 0.25);
+  }
+
+  @Test
+  public void testEncodeDecode() throws Exception {
+    OneMeasurementHdrHistogram h = histogram(3);
+    for (int i = 0; i < 10000; i++) {
+      h.measureNanos(i * i * 37L);
+    }
+    byte[] bytes = h.encode();
+    assertTrue(bytes.length < 16 * 1024);
+    OneMeasurementHdrHistogram copy = OneMeasurementHdrHistogram.decode("READ", bytes, h.percentiles);
+    assertEquals(h.getOperations(), copy.getOperations());
+    assertEquals(h.min, copy.min);
+    assertEquals(h.max, copy.max);
+    for (double percentile : new double[] {0, 10, 50, 90, 99, 99.99, 100}) {
+      assertEquals(h.getPercentileNanos(percentile), copy.getPercentileNanos(percentile));
+    }
+  }
+
+  @Test
+  public void testIntervalMax() {
+    OneMeasurementHdrHistogram h = histogram(2);
+    h.measureNanos(5000000);
+    OneMeasurementHdrHistogram before = h.clone();
+    h.measureNanos(1000);
+    OneMeasurementHdrHistogram interval = h.since(before);
+    assertEquals(1, interval.getOperations());
+    assertEquals(1000, interval.min, 10);
+    assertEquals(1000, interval.max, 10);
+  }
+}
@@ -0,0 +1,84 @@
+package com.yahoo.ycsb.measurements;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestOneMeasurementTimeSeries {
+  static OneMeasurementTimeSeries series() {
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementTimeSeries.GRANULARITY, "1000");
+    return new OneMeasurementTimeSeries("READ", props);
+  }
+
+  @Test
+  public void testMergeUnits() {
+    long start = 1000000L;
+    OneMeasurementTimeSeries a = series();
+    OneMeasurementTimeSeries b = series();
+    //both threads measure into the first two units, and one of them into the third too
+    for (int i = 1; i <= 100; i++) {
+      a.measureAt(start + i, i * 1000L);
+      b.measureAt(start + 500 + i, (100 + i) * 1000L);
+      a.measureAt(start + 1000 + i, 5000L);
+      b.measureAt(start + 1999, 7000L);
+    }
+    b.measureAt(start + 2000, 1000000L);
+
+    OneMeasurementTimeSeries total = a.clone();
+    total.merge(b);
+    assertEquals(401, total.getOperations());
+    assertEquals(3, total.units.size());
+
+    OneMeasurementHdrHistogram first = total.units.get(start / 1000);
+    assertEquals(200, first.getOperations());
+    assertEquals(100, first.getPercentileLatency(50), 1);
+    assertEquals(198, first.getPercentileLatency(99), 2);
+    assertEquals(200, first.getPercentileLatency(100), 0);
+    assertEquals(7, total.units.get(start / 1000 + 1).getPercentileLatency(100), 0);
+    assertEquals(1000, total.getPercentileLatency(100), 0);
+
+    //merging into a clone leaves the measurements it came from alone
+    assertEquals(200, a.getOperations());
+    assertEquals(201, b.getOperations());
+  }
+
+  @Test
+  public void testSince() {
+    OneMeasurementTimeSeries a = series();
+    a.measureAt(5000, 1000);
+    a.measureAt(6000, 2000);
+    OneMeasurementTimeSeries before = a.clone();
+    a.measureAt(6500, 3000);
+    a.measureAt(7000, 4000);
+    OneMeasurementTimeSeries interval = a.since(before);
+    assertEquals(2, interval.getOperations());
+    assertEquals(2, interval.units.size());
+    assertEquals(3, interval.units.get(6L).getPercentileLatency(100), 0);
+  }
+
+  @Test
+  public void testExport() throws IOException {
+    OneMeasurementTimeSeries a = series();
+    for (int i = 0; i < 10; i++) {
+      a.measureAt(3000 + i, 2000);
+      a.measureAt(5000 + i, 4000);
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    a.exportMeasurements(exporter);
+    exporter.close();
+    String text = out.toString();
+    assertTrue(text.contains("[READ], Operations, 20"));
+    assertTrue(text.contains("[READ], 0, 2"));
+    assertTrue(text.contains("[READ], 0 Throughput(ops/sec), 10"));
+    assertTrue(text.contains("[READ], 0 99.9thPercentileLatency(us), 2"));
+    assertTrue(text.contains("[READ], 2000 MaxLatency(us), 4"));
+    assertFalse(text.contains("[READ], 1000,"));
+  }
+}
@@ -0,0 +1,50 @@
+package com.yahoo.ycsb.workloads;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestKeyOrder {
+  private static String name(long keynumber) {
+    return Long.toString(keynumber, Character.MAX_RADIX);
+  }
+
+  @Test
+  public void testSortMatchesKeyNames() {
+    Random random = new Random(1);
+    long[] keys = new long[10000];
+    for (int i = 0; i < keys.length; i++) {
+      switch (i % 4) {
+        case 0: keys[i] = random.nextLong(); break;
+        case 1: keys[i] = random.nextInt(100000); break;
+        case 2: keys[i] = -random.nextInt(1000); break;
+        default: keys[i] = i;
+      }
+    }
+    keys[0] = Long.MIN_VALUE;
+    keys[1] = Long.MAX_VALUE;
+    keys[2] = 0;
+
+    String[] names = new String[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      names[i] = name(keys[i]);
+    }
+    Arrays.sort(names);
+
+    KeyOrder.sort(keys);
+    for (int i = 0; i < keys.length; i++) {
+      assertEquals(names[i], name(keys[i]));
+    }
+  }
+
+  @Test
+  public void testCompare() {
+    assertTrue(KeyOrder.compare(1, 36) < 0);   // "1" < "10"
+    assertTrue(KeyOrder.compare(36, 2) < 0);   // "10" < "2"
+    assertTrue(KeyOrder.compare(-5, 0) < 0);   // "-5" < "0"
+    assertTrue(KeyOrder.compare(-36, -2) < 0); // "-10" < "-2"
+    assertEquals(0, KeyOrder.compare(42, 42));
+  }
+}
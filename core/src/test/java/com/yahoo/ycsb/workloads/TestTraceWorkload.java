@@ -0,0 +1,114 @@
+package com.yahoo.ycsb.workloads;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestTraceWorkload {
+  /**
+   * Logs the operations it is asked to do, by kind, key and fields.
+   */
+  static class RecordingDB extends DB {
+    final List<String> operations = new ArrayList<String>();
+
+    private static String fields(Set<String> fields) {
+      return fields == null ? "all" : new TreeSet<String>(fields).toString();
+    }
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      operations.add("READ " + key + " " + fields(fields));
+      return 0;
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      operations.add("SCAN " + startkey + " " + recordcount + " " + fields(fields));
+      return 0;
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      operations.add("UPDATE " + key + " " + fields(values.keySet()));
+      return 0;
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      operations.add("INSERT " + key + " " + fields(values.keySet()));
+      return 0;
+    }
+
+    public int delete(String table, String key) {
+      operations.add("DELETE " + key);
+      return 0;
+    }
+  }
+
+  private static TraceWorkload replayer(File trace) throws WorkloadException {
+    Properties props = new Properties();
+    props.setProperty(TraceWorkload.FILE_PROPERTY, trace.getPath());
+    props.setProperty(TraceWorkload.TIMING_PROPERTY, "fast");
+    TraceWorkload workload = new TraceWorkload();
+    workload.init(props);
+    return workload;
+  }
+
+  @Test
+  public void testRecordAndReplay() throws IOException, WorkloadException {
+    Measurements.setProperties(new Properties());
+    File trace = File.createTempFile("trace", ".ycsb");
+    trace.deleteOnExit();
+
+    Properties props = new Properties();
+    props.setProperty(CoreWorkload.TRACE_RECORD_PROPERTY, trace.getPath());
+    props.setProperty("recordcount", "100");
+    props.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0.2");
+    props.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0.2");
+    props.setProperty(CoreWorkload.INSERT_PROPORTION_PROPERTY, "0.2");
+    props.setProperty(CoreWorkload.SCAN_PROPORTION_PROPERTY, "0.2");
+    props.setProperty(CoreWorkload.READMODIFYWRITE_PROPORTION_PROPERTY, "0.2");
+    CoreWorkload recorder = new CoreWorkload();
+    recorder.init(props);
+    Object state = recorder.initThread(props, 0, 1);
+    RecordingDB recorded = new RecordingDB();
+    for (int i = 0; i < 100; i++) {
+      assertTrue(recorder.doInsert(recorded, state));
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(recorder.doTransaction(recorded, state));
+    }
+    recorder.cleanup();
+
+    TraceWorkload replayer = replayer(trace);
+    state = replayer.initThread(props, 0, 1);
+    RecordingDB replayed = new RecordingDB();
+    while (replayer.doTransaction(replayed, state)) {
+    }
+    assertEquals(recorded.operations, replayed.operations);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testUnknownOperation() throws IOException, WorkloadException {
+    Measurements.setProperties(new Properties());
+    File trace = File.createTempFile("trace", ".ycsb");
+    trace.deleteOnExit();
+
+    TraceWriter writer = new TraceWriter(trace.getPath());
+    writer.record((byte) 42, 1, 0, 0, 0);
+    writer.close();
+
+    TraceWorkload replayer = replayer(trace);
+    replayer.doTransaction(new RecordingDB(), replayer.initThread(new Properties(), 0, 1));
+  }
+}
@@ -191,6 +191,72 @@ public class HBaseClient extends com.yahoo.ycsb.DB
     return Ok;
     }
 
+    /**
+     * Read a number of records from the database with one multi-get.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to read.
+     * @param fields The list of fields to read, or null for all of them
+     * @param results A list to add a HashMap of field/value pairs to for each record
+     * @return Zero on success, a non-zero error code on error
+     */
+    public int multiRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+    {
+        //if this is a "new" table, init HTable object.  Else, use existing one
+        if (!_table.equals(table)) {
+            _hTable = null;
+            try
+            {
+                getHTable(table);
+                _table = table;
+            }
+            catch (IOException e)
+            {
+                System.err.println("Error accessing HBase table: "+e);
+                return ServerError;
+            }
+        }
+
+        Result[] rs = null;
+        try
+        {
+            List<Get> gets = new ArrayList<Get>(keys.size());
+            for (String key : keys) {
+                Get g = new Get(Bytes.toBytes(key));
+                if (fields == null) {
+                    g.addFamily(_columnFamilyBytes);
+                } else {
+                    for (String field : fields) {
+                        g.addColumn(_columnFamilyBytes, Bytes.toBytes(field));
+                    }
+                }
+                gets.add(g);
+            }
+            rs = _hTable.get(gets);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Error doing multi-get: "+e);
+            return ServerError;
+        }
+        catch (ConcurrentModificationException e)
+        {
+            //do nothing for now...need to understand HBase concurrency model better
+            return ServerError;
+        }
+
+        for (Result r : rs) {
+            HashMap<String,ByteIterator> result = new HashMap<String,ByteIterator>();
+            for (KeyValue kv : r.raw()) {
+                result.put(
+                    Bytes.toString(kv.getQualifier()),
+                    new ByteArrayByteIterator(kv.getValue()));
+            }
+            results.add(result);
+        }
+        return Ok;
+    }
+
     /**
      * Perform a range scan for a set of records in the database. Each field/value pair from the result will be stored in a HashMap.
      *
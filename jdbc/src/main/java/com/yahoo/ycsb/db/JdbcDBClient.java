@@ -442,6 +442,62 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
     }
 	}
 
+	@Override
+	public int insertBatch(String tableName, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+	  if (tableName == null) {
+	    return -1;
+	  }
+	  for (String key : keys) {
+	    if (key == null) {
+	      return -1;
+	    }
+	  }
+	  // the records may go to different shards, so batch them per statement
+	  Map<StatementType, PreparedStatement> batches = new LinkedHashMap<StatementType, PreparedStatement>();
+	  try {
+	    for (int i = 0; i < keys.size(); i++) {
+	      String key = keys.get(i);
+	      HashMap<String, ByteIterator> record = values.get(i);
+	      StatementType type = new StatementType(StatementType.Type.INSERT, tableName, record.size(), getShardIndexByKey(key));
+	      PreparedStatement insertStatement = batches.get(type);
+	      if (insertStatement == null) {
+	        insertStatement = cachedStatements.get(type);
+	        if (insertStatement == null) {
+	          insertStatement = createAndCacheInsertStatement(type, key);
+	        }
+	        batches.put(type, insertStatement);
+	      }
+	      insertStatement.setString(1, key);
+	      int index = 2;
+	      for (Map.Entry<String, ByteIterator> entry : record.entrySet()) {
+	        insertStatement.setString(index++, entry.getValue().toString());
+	      }
+	      insertStatement.addBatch();
+	    }
+	    int result = SUCCESS;
+	    for (PreparedStatement insertStatement : batches.values()) {
+	      for (int count : insertStatement.executeBatch()) {
+	        if (count != 1 && count != Statement.SUCCESS_NO_INFO) {
+	          result = 1;
+	        }
+	      }
+	    }
+	    return result;
+	  } catch (SQLException e) {
+	    System.err.println("Error in processing batch insert to table: " + tableName + e);
+	    return -1;
+	  } finally {
+	    // the statements are cached, so rows left queued on a failure would be inserted by the next batch
+	    for (PreparedStatement insertStatement : batches.values()) {
+	      try {
+	        insertStatement.clearBatch();
+	      } catch (SQLException e) {
+	        System.err.println("Error in clearing batch insert to table: " + tableName + e);
+	      }
+	    }
+	  }
+	}
+
 	@Override
 	public int delete(String tableName, String key) {
 	  if (tableName == null) {
@@ -11,6 +11,7 @@ import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.StringByteIterator;
 
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -20,7 +21,9 @@ import java.util.Set;
 import java.util.Vector;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
 
 public class RedisClient extends DB {
 
@@ -91,6 +94,45 @@ public class RedisClient extends DB {
         return result.isEmpty() ? 1 : 0;
     }
 
+    @Override
+    public int multiRead(String table, List<String> keys, Set<String> fields,
+            List<HashMap<String, ByteIterator>> results) {
+        Pipeline pipeline = jedis.pipelined();
+        String[] fieldArray = fields == null ? null : (String[])fields.toArray(new String[fields.size()]);
+        List<Response<Map<String, String>>> all = new ArrayList<Response<Map<String, String>>>();
+        List<Response<List<String>>> some = new ArrayList<Response<List<String>>>();
+        for (String key : keys) {
+            if (fields == null) {
+                all.add(pipeline.hgetAll(key));
+            }
+            else {
+                some.add(pipeline.hmget(key, fieldArray));
+            }
+        }
+        pipeline.sync();
+
+        int res = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            HashMap<String, ByteIterator> result = new HashMap<String, ByteIterator>();
+            if (fields == null) {
+                StringByteIterator.putAllAsByteIterators(result, all.get(i).get());
+            }
+            else {
+                List<String> values = some.get(i).get();
+                for (int j = 0; j < fieldArray.length; j++) {
+                    if (values.get(j) != null) {
+                        result.put(fieldArray[j], new StringByteIterator(values.get(j)));
+                    }
+                }
+            }
+            if (result.isEmpty()) {
+                res = 1;
+            }
+            results.add(result);
+        }
+        return res;
+    }
+
     @Override
     public int insert(String table, String key, HashMap<String, ByteIterator> values) {
         if (jedis.hmset(key, StringByteIterator.getStringMap(values)).equals("OK")) {
@@ -112,6 +154,23 @@ public class RedisClient extends DB {
         return jedis.hmset(key, StringByteIterator.getStringMap(values)).equals("OK") ? 0 : 1;
     }
 
+    @Override
+    public int multiUpdate(String table, List<String> keys, List<HashMap<String, ByteIterator>> values) {
+        Pipeline pipeline = jedis.pipelined();
+        List<Response<String>> replies = new ArrayList<Response<String>>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            replies.add(pipeline.hmset(keys.get(i), StringByteIterator.getStringMap(values.get(i))));
+        }
+        pipeline.sync();
+
+        for (Response<String> reply : replies) {
+            if (!"OK".equals(reply.get())) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
     @Override
     public int scan(String table, String startkey, int recordcount,
             Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {